@@ -0,0 +1,212 @@
+package com.github.dapeng.gateway.metrics;
+
+import com.github.dapeng.gateway.netty.request.RequestContext;
+import jdk.jfr.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 网关请求的 JFR 事件, 只经由 {@link RequestEvents} 访问.
+ * <p>
+ * 源码在 src/jfr/java, 只在 -P jfr 时编译进包, RequestEvents 按类名反射加载, 找不到时不发事件.
+ * <p>
+ * 事件名以 com.github.dapeng.gateway 开头, 在 .jfc 或 -XX:StartFlightRecording 的 settings 中按名字开关、设置阈值;
+ * 各阶段的耗时为事件本身的 duration, 阈值以下的事件不填字段也不写入.
+ * 事件未开启(包括没有录制)时只读一次 {@link EventType#isEnabled()}, 不创建事件对象.
+ *
+ * @author agent 2026.10.19
+ */
+final class JfrRequestEvents implements RequestEvents.Sink {
+    private static final EventType RECEIVED = EventType.getEventType(RequestReceived.class);
+    private static final EventType AUTH = EventType.getEventType(Auth.class);
+    private static final EventType BACKEND = EventType.getEventType(BackendCall.class);
+    private static final EventType WRITE = EventType.getEventType(ResponseWritten.class);
+
+    JfrRequestEvents() {
+    }
+
+    @Override
+    public void received(RequestContext context) {
+        if (!RECEIVED.isEnabled()) {
+            return;
+        }
+        RequestReceived event = new RequestReceived();
+        if (event.shouldCommit()) {
+            event.url = context.requestUrl();
+            event.service = context.service().orElse(null);
+            event.method = context.method().orElse(null);
+            event.apiKey = context.apiKey().orElse(null);
+            event.requestBytes = context.requestBytes();
+            event.parseMicros = TimeUnit.NANOSECONDS.toMicros(context.parsedNanos() - context.receiveNanos());
+            event.commit();
+        }
+    }
+
+    @Override
+    public Object beginAuth() {
+        if (!AUTH.isEnabled()) {
+            return null;
+        }
+        Auth event = new Auth();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void endAuth(Object token, RequestContext context, boolean allowed) {
+        Auth event = (Auth) token;
+        event.end();
+        if (event.shouldCommit()) {
+            event.service = context.service().orElse(null);
+            event.method = context.method().orElse(null);
+            event.apiKey = context.apiKey().orElse(null);
+            event.allowed = allowed;
+            event.commit();
+        }
+    }
+
+    @Override
+    public Object beginBackend() {
+        if (!BACKEND.isEnabled()) {
+            return null;
+        }
+        BackendCall event = new BackendCall();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void endBackend(Object token, RequestContext context, boolean success) {
+        BackendCall event = (BackendCall) token;
+        event.end();
+        if (event.shouldCommit()) {
+            event.service = context.service().orElse(null);
+            event.version = context.version().orElse(null);
+            event.method = context.method().orElse(null);
+            event.apiKey = context.apiKey().orElse(null);
+            event.requestBytes = context.requestBytes();
+            event.sessionTid = context.sessionTid();
+            event.success = success;
+            event.commit();
+        }
+    }
+
+    @Override
+    public Object beginWrite() {
+        if (!WRITE.isEnabled()) {
+            return null;
+        }
+        ResponseWritten event = new ResponseWritten();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void endWrite(Object token, RequestContext context, int status, int responseBytes, boolean success) {
+        ResponseWritten event = (ResponseWritten) token;
+        event.end();
+        if (event.shouldCommit()) {
+            if (context != null) {
+                event.url = context.requestUrl();
+                event.service = context.service().orElse(null);
+                event.method = context.method().orElse(null);
+                event.apiKey = context.apiKey().orElse(null);
+                if (context.receiveNanos() != 0) {
+                    event.totalMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - context.receiveNanos());
+                }
+            }
+            event.httpStatus = status;
+            event.responseBytes = responseBytes;
+            event.success = success;
+            event.commit();
+        }
+    }
+
+    @Name("com.github.dapeng.gateway.RequestReceived")
+    @Label("Request Received")
+    @Description("Request parsed and about to enter authentication")
+    @Category({"Dapeng Mesh", "Request"})
+    @StackTrace(false)
+    static final class RequestReceived extends Event {
+        @Label("Url")
+        String url;
+        @Label("Service")
+        String service;
+        @Label("Method")
+        String method;
+        @Label("Api Key")
+        String apiKey;
+        @Label("Request Bytes")
+        @DataAmount
+        int requestBytes;
+        @Label("Parse Micros")
+        long parseMicros;
+    }
+
+    @Name("com.github.dapeng.gateway.Auth")
+    @Label("Authentication")
+    @Description("Signature and white list check of an open api request")
+    @Category({"Dapeng Mesh", "Request"})
+    @StackTrace(false)
+    @Threshold("1 ms")
+    static final class Auth extends Event {
+        @Label("Service")
+        String service;
+        @Label("Method")
+        String method;
+        @Label("Api Key")
+        String apiKey;
+        @Label("Allowed")
+        boolean allowed;
+    }
+
+    @Name("com.github.dapeng.gateway.BackendCall")
+    @Label("Backend Call")
+    @Description("From dispatching the request to the backend until its response or failure")
+    @Category({"Dapeng Mesh", "Request"})
+    @StackTrace(false)
+    @Threshold("20 ms")
+    static final class BackendCall extends Event {
+        @Label("Service")
+        String service;
+        @Label("Version")
+        String version;
+        @Label("Method")
+        String method;
+        @Label("Api Key")
+        String apiKey;
+        @Label("Request Bytes")
+        @DataAmount
+        int requestBytes;
+        @Label("Session Tid")
+        long sessionTid;
+        @Label("Success")
+        boolean success;
+    }
+
+    @Name("com.github.dapeng.gateway.ResponseWritten")
+    @Label("Response Written")
+    @Description("From writing the response until it is flushed to the socket")
+    @Category({"Dapeng Mesh", "Request"})
+    @StackTrace(false)
+    @Threshold("10 ms")
+    static final class ResponseWritten extends Event {
+        @Label("Url")
+        String url;
+        @Label("Service")
+        String service;
+        @Label("Method")
+        String method;
+        @Label("Api Key")
+        String apiKey;
+        @Label("Http Status")
+        int httpStatus;
+        @Label("Response Bytes")
+        @DataAmount
+        int responseBytes;
+        @Label("Total Micros")
+        long totalMicros;
+        @Label("Success")
+        boolean success;
+    }
+}
@@ -0,0 +1,76 @@
+package com.github.dapeng.gateway;
+
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.*;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 基准测试使用的典型请求
+ *
+ * @author agent 2026.10.19
+ */
+public final class BenchmarkRequests {
+    public static final String SERVICE = "com.today.api.order.service.OrderService2";
+    public static final String VERSION = "1.0.0";
+    public static final String METHOD = "createOrder";
+    public static final String API_KEY = "a3f9c7e1b2d4";
+
+    public static final String PARAMETER = "{\"body\":{\"request\":{\"storeId\":1234,\"posId\":12,\"items\":["
+            + "{\"skuNo\":\"6901234567890\",\"num\":2,\"price\":12.50},"
+            + "{\"skuNo\":\"6901234567891\",\"num\":1,\"price\":3.20},"
+            + "{\"skuNo\":\"6901234567892\",\"num\":5,\"price\":0.99}],"
+            + "\"remark\":\"SKU_FINANCE_TYPE\"}}}";
+
+    private BenchmarkRequests() {
+    }
+
+    /**
+     * /api/{service}/{version}/{method}/{apiKey}?timestamp=&secret2=&cookie_storeId=
+     */
+    public static FullHttpRequest restWithApiKey() {
+        String uri = "/api/" + SERVICE + "/" + VERSION + "/" + METHOD + "/" + API_KEY
+                + "?timestamp=1525946628000&secret2=0c8e5c1f6a2b4d7e9f1a3b5c7d9e1f2a&cookie_storeId=1234";
+        return post(uri, "parameter=" + encode(PARAMETER));
+    }
+
+    /**
+     * /api/{service}/{version}/{method}?cookie_storeId=
+     */
+    public static FullHttpRequest rest() {
+        String uri = "/api/" + SERVICE + "/" + VERSION + "/" + METHOD + "?cookie_storeId=1234";
+        return post(uri, "parameter=" + encode(PARAMETER));
+    }
+
+    /**
+     * /api/{apiKey}, 其余参数都在 body
+     */
+    public static FullHttpRequest requestParam() {
+        String body = "serviceName=" + SERVICE + "&version=" + VERSION + "&methodName=" + METHOD
+                + "&timestamp=1525946628000&secret2=0c8e5c1f6a2b4d7e9f1a3b5c7d9e1f2a&parameter=" + encode(PARAMETER);
+        return post("/api/" + API_KEY, body);
+    }
+
+    private static FullHttpRequest post(String uri, String body) {
+        FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, uri,
+                Unpooled.copiedBuffer(body, StandardCharsets.UTF_8));
+        HttpHeaders headers = request.headers();
+        headers.set(HttpHeaderNames.HOST, "gateway.today.cn");
+        headers.set(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.APPLICATION_X_WWW_FORM_URLENCODED);
+        headers.setInt(HttpHeaderNames.CONTENT_LENGTH, request.content().readableBytes());
+        headers.set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
+        headers.set(HttpHeaderNames.COOKIE, "cookie_posId=12; cookie_operatorId=3001; JSESSIONID=8C1F");
+        headers.set("x-forwarded-for", "192.168.1.110, 192.168.1.120");
+        return request;
+    }
+
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.github.dapeng.gateway.http;
+
+import com.github.dapeng.gateway.BenchmarkRequests;
+import com.github.dapeng.gateway.netty.request.RequestContext;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 响应拼装与写出, 写到 EmbeddedChannel 后立即释放.
+ * 关闭访问日志, 只测量响应本身.
+ *
+ * @author agent 2026.10.19
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dsoa.access.log.enable=false")
+public class HttpResponseBenchmark {
+    private static final String RESULT = "{\"orderNo\":\"2026101900001234\",\"storeId\":1234,\"amount\":33.15,"
+            + "\"items\":[{\"skuNo\":\"6901234567890\",\"num\":2},{\"skuNo\":\"6901234567891\",\"num\":1}]}";
+
+    private EmbeddedChannel channel;
+    private ChannelHandlerContext ctx;
+    private FullHttpRequest request;
+
+    @Setup
+    public void setup() {
+        channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+        ctx = channel.pipeline().firstContext();
+        request = BenchmarkRequests.rest();
+    }
+
+    @TearDown
+    public void tearDown() {
+        request.release();
+        channel.finishAndReleaseAll();
+    }
+
+    @Benchmark
+    public String appendSuccessStatus() {
+        return HttpPostProcessor.appendSuccessStatus(RESULT);
+    }
+
+    @Benchmark
+    public int sendHttpResponse() {
+        RequestContext context = new RequestContext();
+        context.request(request);
+        HttpProcessorUtils.sendHttpResponse(ctx, HttpPostProcessor.appendSuccessStatus(RESULT), context, HttpResponseStatus.OK);
+        FullHttpResponse response = channel.readOutbound();
+        int length = response.content().readableBytes();
+        response.release();
+        return length;
+    }
+}
@@ -0,0 +1,61 @@
+package com.github.dapeng.gateway.http.match;
+
+import com.github.dapeng.gateway.BenchmarkRequests;
+import com.github.dapeng.gateway.netty.request.RequestContext;
+import io.netty.handler.codec.http.FullHttpRequest;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link UrlMappingResolver#handlerPostUrl} 三种 url 风格
+ *
+ * @author agent 2026.10.19
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UrlMappingResolverBenchmark {
+    private FullHttpRequest restWithApiKey;
+    private FullHttpRequest rest;
+    private FullHttpRequest requestParam;
+
+    @Setup
+    public void setup() {
+        restWithApiKey = BenchmarkRequests.restWithApiKey();
+        rest = BenchmarkRequests.rest();
+        requestParam = BenchmarkRequests.requestParam();
+    }
+
+    @TearDown
+    public void tearDown() {
+        restWithApiKey.release();
+        rest.release();
+        requestParam.release();
+    }
+
+    @Benchmark
+    public RequestContext restWithApiKey() {
+        return resolve(restWithApiKey);
+    }
+
+    @Benchmark
+    public RequestContext rest() {
+        return resolve(rest);
+    }
+
+    @Benchmark
+    public RequestContext requestParam() {
+        return resolve(requestParam);
+    }
+
+    private static RequestContext resolve(FullHttpRequest request) {
+        RequestContext context = new RequestContext();
+        context.request(request);
+        UrlMappingResolver.handlerPostUrl(request, context);
+        return context;
+    }
+}
@@ -0,0 +1,188 @@
+package com.github.dapeng.gateway.netty;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.handler.ssl.OpenSsl;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslProvider;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import io.netty.util.ReferenceCountUtil;
+import org.openjdk.jmh.annotations.*;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TLS 握手及加解密吞吐, 客户端和服务端 SSLEngine 直接在内存中交换数据, 不经过网络.
+ * 服务端使用 {@link TlsContext#build} 创建, 与线上配置一致; 为了稳定地测量会话缓存恢复, 客户端限定 TLSv1.2.
+ * 没有 netty-tcnative 时 openssl 参数会失败, 其余照常运行.
+ *
+ * @author agent 2026.10.19
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TlsBenchmark {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    @Param({"jdk", "openssl"})
+    public String provider;
+
+    @Param({"1024", "16384"})
+    public int payloadSize;
+
+    private SslContext serverContext;
+    private SslContext clientContext;
+
+    private SSLEngine client;
+    private SSLEngine server;
+    private ByteBuffer payload;
+    private final ByteBuffer net = ByteBuffer.allocate(BUFFER_SIZE);
+    private final ByteBuffer app = ByteBuffer.allocate(BUFFER_SIZE);
+
+    @Setup
+    public void setup() throws Exception {
+        SslProvider sslProvider = TlsContext.provider(provider);
+        if (sslProvider == SslProvider.OPENSSL && !OpenSsl.isAvailable()) {
+            throw new IllegalStateException("netty-tcnative is not available", OpenSsl.unavailabilityCause());
+        }
+        serverContext = TlsContext.build(copy("tls/benchmark.crt"), copy("tls/benchmark.key"), sslProvider, false);
+        clientContext = SslContextBuilder.forClient()
+                .sslProvider(sslProvider)
+                .protocols("TLSv1.2")
+                .trustManager(InsecureTrustManagerFactory.INSTANCE)
+                .build();
+
+        // 先完成一次握手, 使客户端缓存会话
+        resumedHandshake();
+
+        client = clientContext.newEngine(ByteBufAllocator.DEFAULT);
+        server = serverContext.newEngine(ByteBufAllocator.DEFAULT);
+        handshake(client, server);
+        payload = ByteBuffer.allocate(payloadSize);
+    }
+
+    @TearDown
+    public void tearDown() {
+        ReferenceCountUtil.release(client);
+        ReferenceCountUtil.release(server);
+    }
+
+    /**
+     * 完整握手: 客户端不带会话
+     */
+    @Benchmark
+    public boolean fullHandshake() throws SSLException {
+        SSLEngine c = clientContext.newEngine(ByteBufAllocator.DEFAULT);
+        SSLEngine s = serverContext.newEngine(ByteBufAllocator.DEFAULT);
+        try {
+            return handshake(c, s);
+        } finally {
+            ReferenceCountUtil.release(c);
+            ReferenceCountUtil.release(s);
+        }
+    }
+
+    /**
+     * 会话恢复: 客户端按 host/port 复用缓存的会话
+     */
+    @Benchmark
+    public boolean resumedHandshake() throws SSLException {
+        SSLEngine c = clientContext.newEngine(ByteBufAllocator.DEFAULT, "dapeng-mesh-benchmark", 443);
+        SSLEngine s = serverContext.newEngine(ByteBufAllocator.DEFAULT);
+        try {
+            return handshake(c, s);
+        } finally {
+            ReferenceCountUtil.release(c);
+            ReferenceCountUtil.release(s);
+        }
+    }
+
+    /**
+     * 客户端加密 payloadSize 字节, 服务端解密
+     */
+    @Benchmark
+    public int roundTrip() throws SSLException {
+        payload.clear();
+        net.clear();
+        app.clear();
+        while (payload.hasRemaining()) {
+            client.wrap(payload, net);
+        }
+        net.flip();
+        while (net.hasRemaining()) {
+            server.unwrap(net, app);
+        }
+        return app.position();
+    }
+
+    private static boolean handshake(SSLEngine client, SSLEngine server) throws SSLException {
+        ByteBuffer clientToServer = ByteBuffer.allocate(BUFFER_SIZE);
+        ByteBuffer serverToClient = ByteBuffer.allocate(BUFFER_SIZE);
+        ByteBuffer app = ByteBuffer.allocate(BUFFER_SIZE);
+        client.beginHandshake();
+        server.beginHandshake();
+        for (int i = 0; i < 100; i++) {
+            boolean clientDone = progress(client, serverToClient, clientToServer, app);
+            boolean serverDone = progress(server, clientToServer, serverToClient, app);
+            if (clientDone && serverDone) {
+                return true;
+            }
+        }
+        throw new IllegalStateException("handshake not finished");
+    }
+
+    /**
+     * 推进握手直到需要对端数据
+     *
+     * @return 握手是否已完成
+     */
+    private static boolean progress(SSLEngine engine, ByteBuffer in, ByteBuffer out, ByteBuffer app) throws SSLException {
+        while (true) {
+            switch (engine.getHandshakeStatus()) {
+                case NEED_TASK:
+                    Runnable task;
+                    while ((task = engine.getDelegatedTask()) != null) {
+                        task.run();
+                    }
+                    break;
+                case NEED_WRAP:
+                    engine.wrap(EMPTY, out);
+                    break;
+                case NEED_UNWRAP:
+                    in.flip();
+                    SSLEngineResult result = engine.unwrap(in, app);
+                    in.compact();
+                    app.clear();
+                    if (result.getStatus() == SSLEngineResult.Status.BUFFER_UNDERFLOW
+                            || result.bytesConsumed() == 0 && result.bytesProduced() == 0) {
+                        return false;
+                    }
+                    break;
+                default:
+                    return true;
+            }
+        }
+    }
+
+    private static File copy(String resource) throws IOException {
+        File file = File.createTempFile("dapeng-mesh-", resource.substring(resource.lastIndexOf('.')));
+        file.deleteOnExit();
+        try (InputStream in = TlsBenchmark.class.getClassLoader().getResourceAsStream(resource)) {
+            Files.copy(in, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        return file;
+    }
+}
@@ -0,0 +1,53 @@
+package com.github.dapeng.gateway.netty.handler;
+
+import com.github.dapeng.gateway.BenchmarkRequests;
+import com.github.dapeng.gateway.http.match.UrlMappingResolver;
+import com.github.dapeng.gateway.netty.request.RequestContext;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.FullHttpRequest;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 鉴权请求 json 的拼装(不含调用后端鉴权服务)
+ *
+ * @author agent 2026.10.19
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuthenticationHandlerBenchmark {
+    private final AuthenticationHandler handler = new AuthenticationHandler();
+
+    private EmbeddedChannel channel;
+    private ChannelHandlerContext ctx;
+    private FullHttpRequest request;
+    private RequestContext context;
+
+    @Setup
+    public void setup() {
+        channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+        ctx = channel.pipeline().firstContext();
+        request = BenchmarkRequests.restWithApiKey();
+        context = new RequestContext();
+        context.request(request);
+        UrlMappingResolver.handlerPostUrl(request, context);
+    }
+
+    @TearDown
+    public void tearDown() {
+        request.release();
+        channel.finishAndReleaseAll();
+    }
+
+    @Benchmark
+    public String buildRequestJson() {
+        return handler.buildRequestJson(context, ctx);
+    }
+}
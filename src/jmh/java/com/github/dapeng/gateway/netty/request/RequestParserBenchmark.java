@@ -0,0 +1,64 @@
+package com.github.dapeng.gateway.netty.request;
+
+import com.github.dapeng.gateway.BenchmarkRequests;
+import io.netty.handler.codec.http.FullHttpRequest;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link RequestParser} 各种解析方式
+ *
+ * @author agent 2026.10.19
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestParserBenchmark {
+    private FullHttpRequest request;
+
+    @Setup
+    public void setup() {
+        request = BenchmarkRequests.requestParam();
+    }
+
+    @TearDown
+    public void tearDown() {
+        request.release();
+    }
+
+    /**
+     * HttpPostRequestDecoder 会读取 content, 每次使用独立的 duplicate
+     */
+    @Benchmark
+    public Map<String, String> parse() {
+        FullHttpRequest duplicate = request.retainedDuplicate();
+        try {
+            return RequestParser.parse(duplicate);
+        } finally {
+            duplicate.release();
+        }
+    }
+
+    @Benchmark
+    public RequestContext fastParse() {
+        RequestContext context = new RequestContext();
+        RequestParser.fastParse(request, context);
+        return context;
+    }
+
+    @Benchmark
+    public String fastParseParam() {
+        return RequestParser.fastParseParam(request, "parameter");
+    }
+
+    @Benchmark
+    public Map<String, List<String>> fastParseToMap() {
+        return RequestParser.fastParseToMap(request);
+    }
+}
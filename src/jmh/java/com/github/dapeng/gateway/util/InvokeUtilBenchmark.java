@@ -0,0 +1,57 @@
+package com.github.dapeng.gateway.util;
+
+import com.github.dapeng.gateway.BenchmarkRequests;
+import com.github.dapeng.gateway.http.match.UrlMappingResolver;
+import com.github.dapeng.gateway.netty.request.RequestContext;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.FullHttpRequest;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 客户端 ip 解析与 cookie 合并
+ *
+ * @author agent 2026.10.19
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InvokeUtilBenchmark {
+    private EmbeddedChannel channel;
+    private ChannelHandlerContext ctx;
+    private FullHttpRequest request;
+    private RequestContext context;
+
+    @Setup
+    public void setup() {
+        channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+        ctx = channel.pipeline().firstContext();
+        request = BenchmarkRequests.restWithApiKey();
+        context = new RequestContext();
+        context.request(request);
+        UrlMappingResolver.handlerPostUrl(request, context);
+    }
+
+    @TearDown
+    public void tearDown() {
+        request.release();
+        channel.finishAndReleaseAll();
+    }
+
+    @Benchmark
+    public String getIpAddress() {
+        return InvokeUtil.getIpAddress(request, ctx);
+    }
+
+    @Benchmark
+    public Map<String, String> getCookiesFromParameter() {
+        return InvokeUtil.getCookiesFromParameter(context);
+    }
+}
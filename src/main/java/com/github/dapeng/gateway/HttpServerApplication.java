@@ -2,6 +2,9 @@ package com.github.dapeng.gateway;
 
 import com.github.dapeng.gateway.config.ApiGateWayConfig;
 import com.github.dapeng.gateway.netty.NettyHttpServer;
+import com.github.dapeng.gateway.util.SysEnvUtil;
+import com.github.dapeng.gateway.warmup.MetadataWarmer;
+import com.github.dapeng.gateway.warmup.PipelineWarmer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -16,6 +19,14 @@ public class HttpServerApplication {
 
     public static void main(String[] args) throws Exception {
         new ApiGateWayConfig().afterPropertiesSet();
+        if (Boolean.parseBoolean(SysEnvUtil.WARMUP_ENABLE)) {
+            // 预热完成前健康检查返回 WARMING
+            MetadataWarmer.start(Long.parseLong(SysEnvUtil.WARMUP_TIMEOUT));
+        }
+        if (Boolean.parseBoolean(SysEnvUtil.WARMUP_JIT_ENABLE)) {
+            // 开始监听前完成
+            PipelineWarmer.warmUp(SysEnvUtil.WARMUP_JIT_CORPUS, Integer.parseInt(SysEnvUtil.WARMUP_JIT_ITERATIONS), Long.parseLong(SysEnvUtil.WARMUP_TIMEOUT));
+        }
         NettyHttpServer server = new NettyHttpServer(9000);
         logLogBanner();
         server.registerShutdownHook();
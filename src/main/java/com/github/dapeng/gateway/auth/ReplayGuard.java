@@ -0,0 +1,187 @@
+package com.github.dapeng.gateway.auth;
+
+import com.github.dapeng.core.SoaException;
+import com.github.dapeng.gateway.metrics.GatewayMetrics;
+import com.github.dapeng.gateway.util.DapengMeshCode;
+import com.github.dapeng.gateway.util.SysEnvUtil;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 鉴权 RPC 之前的本地检查: timestamp 超出时间窗口、或完全相同的签名请求重复出现时直接拒绝.
+ * 两项检查各自开关, 默认都关闭; 重放检查依赖时间窗口划分的桶, 开启重放检查时同时检查时间窗口.
+ * <p>
+ * 重放检查使用按 timestamp 分桶的 Bloom filter, 每个桶覆盖一个时间窗口长度.
+ * 能通过时间窗口检查的 timestamp 只落在 [now - window, now + window] 内, 最多跨 3 个桶, 所以环形保留 4 个桶即可,
+ * 过期的桶在下次被复用时整体替换; 内存固定为 4 个 filter.
+ * <p>
+ * Bloom filter 只会误判 "已出现过", 不会漏判; 误判率按每桶 {@link SysEnvUtil#AUTH_REPLAY_CAPACITY} 个请求、百万分之一设计.
+ * <p>
+ * 鉴权前只读检查 {@link #check}, 鉴权通过后才由 {@link #accepted} 记录: 未通过鉴权的请求不占用 filter,
+ * 鉴权服务超时或出错后客户端重试同一个签名请求也不会被当作重放.
+ *
+ * @author agent 2026.10.19
+ */
+public final class ReplayGuard {
+    private static final int BUCKETS = 4;
+    /**
+     * 每个元素占用的位数和哈希函数个数, 对应误判率约 1e-6
+     */
+    private static final int BITS_PER_ENTRY = 29;
+    private static final int HASHES = 20;
+
+    private static final long WINDOW = Long.parseLong(SysEnvUtil.AUTH_TIMESTAMP_WINDOW);
+    private static final boolean REPLAY_ENABLE = Boolean.parseBoolean(SysEnvUtil.AUTH_REPLAY_ENABLE);
+    private static final boolean WINDOW_ENABLE = REPLAY_ENABLE || Boolean.parseBoolean(SysEnvUtil.AUTH_TIMESTAMP_CHECK_ENABLE);
+    private static final long BITS = Math.max(Long.parseLong(SysEnvUtil.AUTH_REPLAY_CAPACITY) * BITS_PER_ENTRY, 64);
+
+    private static final AtomicReferenceArray<Filter> FILTERS = new AtomicReferenceArray<>(BUCKETS);
+
+    private static final LongAdder EXPIRED = new LongAdder();
+    private static final LongAdder REPLAYED = new LongAdder();
+
+    static {
+        if (WINDOW_ENABLE && WINDOW <= 0) {
+            throw new IllegalArgumentException(SysEnvUtil.KEY_AUTH_TIMESTAMP_WINDOW + " must be greater than 0: " + WINDOW);
+        }
+        GatewayMetrics.counter("dapeng_mesh_auth_expired_total", "Requests rejected for timestamp outside the window", EXPIRED::sum);
+        GatewayMetrics.counter("dapeng_mesh_auth_replayed_total", "Requests rejected as replays", REPLAYED::sum);
+    }
+
+    private ReplayGuard() {
+    }
+
+    /**
+     * 启动时调用, 配置不合法时启动失败而不是在第一个请求时失败
+     *
+     * @return 是否有检查开启
+     */
+    public static boolean enabled() {
+        return WINDOW_ENABLE;
+    }
+
+    /**
+     * 鉴权之前调用, 只读不记录
+     *
+     * @param secret secret 或 secret2, 两者都有时都参与
+     * @throws SoaException timestamp 超出窗口或已有相同请求通过鉴权
+     */
+    public static void check(String apiKey, String timestamp, String secret, String secret2) throws SoaException {
+        if (!WINDOW_ENABLE) {
+            return;
+        }
+        long millis = parse(timestamp);
+        if (Math.abs(System.currentTimeMillis() - millis) > WINDOW) {
+            EXPIRED.increment();
+            throw new SoaException(DapengMeshCode.AuthExpired);
+        }
+        if (REPLAY_ENABLE && filter(Math.floorDiv(millis, WINDOW)).mightContain(apiKey, timestamp, secret, secret2)) {
+            REPLAYED.increment();
+            throw new SoaException(DapengMeshCode.AuthReplayed);
+        }
+    }
+
+    /**
+     * 鉴权通过后调用, 记录该请求; 相同请求并发通过鉴权时只有一个成功
+     *
+     * @throws SoaException 相同请求已经记录
+     */
+    public static void accepted(String apiKey, String timestamp, String secret, String secret2) throws SoaException {
+        if (REPLAY_ENABLE && !filter(Math.floorDiv(parse(timestamp), WINDOW)).add(apiKey, timestamp, secret, secret2)) {
+            REPLAYED.increment();
+            throw new SoaException(DapengMeshCode.AuthReplayed);
+        }
+    }
+
+    private static long parse(String timestamp) throws SoaException {
+        try {
+            return Long.parseLong(timestamp.trim());
+        } catch (NumberFormatException e) {
+            throw new SoaException(DapengMeshCode.AuthSecretError);
+        }
+    }
+
+    private static Filter filter(long bucket) {
+        int index = (int) Math.floorMod(bucket, (long) BUCKETS);
+        for (; ; ) {
+            Filter filter = FILTERS.get(index);
+            if (filter != null && filter.bucket == bucket) {
+                return filter;
+            }
+            // 该槽位上是已过期的桶
+            Filter fresh = new Filter(bucket, BITS);
+            if (FILTERS.compareAndSet(index, filter, fresh)) {
+                return fresh;
+            }
+        }
+    }
+
+    static final class Filter {
+        final long bucket;
+        private final AtomicLongArray words;
+        private final long bits;
+
+        Filter(long bucket, long bits) {
+            this.bucket = bucket;
+            this.words = new AtomicLongArray((int) ((bits + 63) >>> 6));
+            this.bits = (long) words.length() << 6;
+        }
+
+        boolean mightContain(String apiKey, String timestamp, String secret, String secret2) {
+            long h1 = hash(0x9E3779B97F4A7C15L, apiKey, timestamp, secret, secret2);
+            long h2 = hash(0xC2B2AE3D27D4EB4FL, apiKey, timestamp, secret, secret2) | 1;
+            for (int i = 0; i < HASHES; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bits);
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @return false 表示可能已经存在
+         */
+        boolean add(String apiKey, String timestamp, String secret, String secret2) {
+            long h1 = hash(0x9E3779B97F4A7C15L, apiKey, timestamp, secret, secret2);
+            long h2 = hash(0xC2B2AE3D27D4EB4FL, apiKey, timestamp, secret, secret2) | 1;
+            boolean added = false;
+            for (int i = 0; i < HASHES; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bits);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long value = words.get(word);
+                while ((value & mask) == 0) {
+                    if (words.compareAndSet(word, value, value | mask)) {
+                        added = true;
+                        break;
+                    }
+                    value = words.get(word);
+                }
+            }
+            return added;
+        }
+
+        private static long hash(long seed, String apiKey, String timestamp, String secret, String secret2) {
+            long h = mix(mix(mix(mix(seed, apiKey), timestamp), secret), secret2);
+            h ^= h >>> 33;
+            h *= 0xFF51AFD7ED558CCDL;
+            h ^= h >>> 33;
+            h *= 0xC4CEB9FE1A85EC53L;
+            h ^= h >>> 33;
+            return h;
+        }
+
+        private static long mix(long h, String value) {
+            if (value != null) {
+                for (int i = 0; i < value.length(); i++) {
+                    h = (h ^ value.charAt(i)) * 0x100000001B3L;
+                }
+            }
+            // 分隔符, 避免 "ab"+"c" 与 "a"+"bc" 相同
+            return (h ^ 0xFF) * 0x100000001B3L;
+        }
+    }
+}
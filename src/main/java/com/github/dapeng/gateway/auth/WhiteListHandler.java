@@ -9,6 +9,11 @@ import org.springframework.util.ResourceUtils;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Set;
 
 /**
@@ -16,10 +21,64 @@ import java.util.Set;
  */
 public class WhiteListHandler {
     private static Logger LOGGER = LoggerFactory.getLogger(WhiteListHandler.class);
+    /**
+     * 镜像中的白名单文件, 存在时监听变化并热加载
+     */
+    public static final String WHITE_LIST_FILE = "/dapeng-mesh/service-whitelist.xml";
+
     private static Persister persister = null;
 
-    public static Set<String> getServiceWhiteList() {
-        return ZookeeperClient.getWhitelist();
+    /**
+     * 当前白名单, 整体替换, 读取时无需加锁
+     */
+    private static volatile WhiteListSnapshot whiteList = WhiteListSnapshot.EMPTY;
+
+    /**
+     * 未开启白名单文件时为 true, 直接读取 zookeeper 客户端当前的白名单, 运行中新增的服务立即生效
+     */
+    private static volatile boolean zookeeperWhiteList;
+
+    /**
+     * 白名单文件的快照, 只在开启白名单文件时有效
+     */
+    public static WhiteListSnapshot getServiceWhiteList() {
+        return whiteList;
+    }
+
+    public static boolean contains(String service) {
+        return zookeeperWhiteList ? ZookeeperClient.getWhitelist().contains(service) : whiteList.contains(service);
+    }
+
+    /**
+     * 是否对外提供该服务: 使用白名单文件时按快照判断, 未开启白名单文件时不过滤.
+     * 白名单热加载时 zookeeper 客户端跟踪全部服务, 元数据缓存中有白名单之外的服务, 调用及服务列表需要经过该检查
+     */
+    public static boolean listed(String service) {
+        return zookeeperWhiteList || whiteList.contains(service);
+    }
+
+    /**
+     * @return 当前白名单内的服务, 只读
+     */
+    public static Set<String> services() {
+        return zookeeperWhiteList ? Collections.unmodifiableSet(ZookeeperClient.getWhitelist()) : whiteList.services();
+    }
+
+    /**
+     * 不使用白名单文件, 改为读取 zookeeper 客户端的白名单
+     */
+    public static void useZookeeperWhiteList() {
+        zookeeperWhiteList = true;
+        LOGGER.info("service whitelist file disabled, use zookeeper whitelist, current whitelist [{}]", ZookeeperClient.getWhitelist().size());
+    }
+
+    /**
+     * 生成并发布新的白名单快照
+     */
+    public static void publishWhiteList(Collection<String> services) {
+        WhiteListSnapshot snapshot = WhiteListSnapshot.of(services);
+        whiteList = snapshot;
+        LOGGER.info("publish service whitelist, current whitelist [{}]", snapshot.size());
     }
 
     /**
@@ -34,7 +93,7 @@ public class WhiteListHandler {
         FileInputStream inputStream = null;
         try {
             //==images==//
-            inputStream = new FileInputStream("/dapeng-mesh/service-whitelist.xml");
+            inputStream = new FileInputStream(WHITE_LIST_FILE);
             Set<String> services = persister.read(
                     ServiceWhiteList.class, inputStream)
                     .getService();
@@ -70,4 +129,18 @@ public class WhiteListHandler {
             }
         }
     }
+
+    /**
+     * 重新读取白名单文件, 用于热加载
+     *
+     * @return 文件不存在、内容不完整或格式错误时返回 null
+     */
+    static Set<String> readWhiteList(Path file) {
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            return new Persister().read(ServiceWhiteList.class, inputStream).getService();
+        } catch (Exception e) {
+            LOGGER.warn("读取白名单文件 [" + file + "] 失败: " + e.getMessage());
+            return null;
+        }
+    }
 }
@@ -0,0 +1,86 @@
+package com.github.dapeng.gateway.auth;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 不可变的服务白名单快照, 创建后只读, 由 {@link WhiteListHandler} 通过 volatile 引用整体替换.
+ * <p>
+ * 使用开放寻址表, 容量为服务数的 4 倍以上, 查找通常一次命中; 比较前先比较 hash, String 的 hash 已缓存.
+ *
+ * @author agent 2026.10.19
+ */
+public final class WhiteListSnapshot {
+    public static final WhiteListSnapshot EMPTY = of(Collections.emptySet());
+
+    private final String[] table;
+    private final int[] hashes;
+    private final int mask;
+    private final Set<String> services;
+
+    private WhiteListSnapshot(Set<String> services) {
+        int capacity = Integer.highestOneBit(Math.max(services.size() * 4, 4) - 1) << 1;
+        this.table = new String[capacity];
+        this.hashes = new int[capacity];
+        this.mask = capacity - 1;
+        this.services = Collections.unmodifiableSet(services);
+
+        for (String service : services) {
+            int hash = service.hashCode();
+            int i = spread(hash) & mask;
+            while (table[i] != null) {
+                i = (i + 1) & mask;
+            }
+            table[i] = service;
+            hashes[i] = hash;
+        }
+    }
+
+    /**
+     * 忽略空白及重复的服务名
+     */
+    public static WhiteListSnapshot of(Collection<String> services) {
+        Set<String> sorted = new TreeSet<>();
+        if (services != null) {
+            for (String service : services) {
+                if (service != null && !service.trim().isEmpty()) {
+                    sorted.add(service.trim());
+                }
+            }
+        }
+        return new WhiteListSnapshot(sorted);
+    }
+
+    public boolean contains(String service) {
+        if (service == null) {
+            return false;
+        }
+        int hash = service.hashCode();
+        for (int i = spread(hash) & mask; ; i = (i + 1) & mask) {
+            String candidate = table[i];
+            if (candidate == null) {
+                return false;
+            }
+            if (hashes[i] == hash && candidate.equals(service)) {
+                return true;
+            }
+        }
+    }
+
+    public int size() {
+        return services.size();
+    }
+
+    /**
+     * 按名称排序的服务列表, 只读
+     */
+    public Set<String> services() {
+        return services;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
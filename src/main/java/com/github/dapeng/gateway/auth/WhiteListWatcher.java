@@ -0,0 +1,135 @@
+package com.github.dapeng.gateway.auth;
+
+import com.github.dapeng.gateway.http.EchoCache;
+import com.github.dapeng.gateway.http.ServiceListCache;
+import com.github.dapeng.json.OptimizedMetadata;
+import com.github.dapeng.openapi.cache.ServiceCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * 监听 service-whitelist.xml, 变化时替换白名单快照, 无需重启.
+ * <p>
+ * 开启热加载时 zookeeper 客户端跟踪全部服务(见 {@link com.github.dapeng.gateway.config.ApiGateWayConfig}), 白名单只在网关侧过滤,
+ * 热加载不再调用 zookeeper 客户端, 也不修改其缓存. 新增服务的元数据加载完成(或等待超时)后才整体替换快照并使服务列表缓存失效,
+ * 保证通过白名单检查的请求能找到元数据.
+ * <p>
+ * 监听的是文件所在目录: k8s ConfigMap 通过替换软链接更新文件, 直接监听文件本身收不到事件.
+ *
+ * @author agent 2026.10.19
+ */
+public class WhiteListWatcher implements Runnable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WhiteListWatcher.class);
+
+    /**
+     * 收到事件后等待文件写完, 合并同一次修改产生的多个事件
+     */
+    private static final long DEBOUNCE_MILLIS = 500;
+    /**
+     * 等待新增服务元数据的最长时间及轮询间隔
+     */
+    private static final long METADATA_TIMEOUT_MILLIS = 10_000;
+    private static final long POLL_MILLIS = 200;
+
+    private final Path file;
+
+    private WhiteListWatcher(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * 文件存在时启动监听线程
+     */
+    public static void start(String path) {
+        Path file = Paths.get(path).toAbsolutePath();
+        if (!Files.exists(file)) {
+            LOGGER.info("whitelist file [{}] not found, hot reload disabled", file);
+            return;
+        }
+        Thread thread = new Thread(new WhiteListWatcher(file), "dapeng-mesh-whitelist-watcher");
+        thread.setDaemon(true);
+        thread.start();
+        LOGGER.info("watching whitelist file [{}]", file);
+    }
+
+    @Override
+    public void run() {
+        try (WatchService watchService = file.getFileSystem().newWatchService()) {
+            file.getParent().register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = watchService.take();
+                TimeUnit.MILLISECONDS.sleep(DEBOUNCE_MILLIS);
+                // 目录下其它文件的变化同样触发比较, 内容没变时不做任何事
+                key.pollEvents();
+                if (!key.reset()) {
+                    LOGGER.error("whitelist directory [{}] is no longer accessible, hot reload stopped", file.getParent());
+                    return;
+                }
+                reload();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            LOGGER.error("watch whitelist file [" + file + "] failed, hot reload disabled", e);
+        }
+    }
+
+    /**
+     * 重新读取并应用白名单
+     */
+    void reload() throws InterruptedException {
+        long begin = System.nanoTime();
+        Set<String> services = WhiteListHandler.readWhiteList(file);
+        if (services == null) {
+            return;
+        }
+        WhiteListSnapshot current = WhiteListHandler.getServiceWhiteList();
+        WhiteListSnapshot next = WhiteListSnapshot.of(services);
+
+        Set<String> added = new TreeSet<>(next.services());
+        added.removeAll(current.services());
+        Set<String> removed = new TreeSet<>(current.services());
+        removed.removeAll(next.services());
+        if (added.isEmpty() && removed.isEmpty()) {
+            return;
+        }
+
+        Set<String> missing = awaitMetadata(added);
+        if (!missing.isEmpty()) {
+            LOGGER.warn("新增服务的元数据在 {}ms 内未加载, 请求将返回服务未找到, 直到 zookeeper 中出现该服务: {}", METADATA_TIMEOUT_MILLIS, missing);
+        }
+        WhiteListHandler.publishWhiteList(next.services());
+        ServiceListCache.invalidate();
+        EchoCache.invalidate(removed);
+
+        LOGGER.info("whitelist reloaded in {}ms, added: {}, removed: {}",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin), added, removed);
+    }
+
+    /**
+     * 等待服务的元数据出现在 {@link ServiceCache} 中
+     *
+     * @return 超时仍未加载的服务
+     */
+    private static Set<String> awaitMetadata(Set<String> services) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(METADATA_TIMEOUT_MILLIS);
+        Set<String> missing = new TreeSet<>(services);
+        while (true) {
+            for (OptimizedMetadata.OptimizedService service : ServiceCache.getServices().values()) {
+                missing.remove(service.getService().namespace + "." + service.getService().name);
+            }
+            if (missing.isEmpty() || System.nanoTime() - deadline >= 0) {
+                return missing;
+            }
+            TimeUnit.MILLISECONDS.sleep(POLL_MILLIS);
+        }
+    }
+}
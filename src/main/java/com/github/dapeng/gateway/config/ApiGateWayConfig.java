@@ -1,10 +1,16 @@
 package com.github.dapeng.gateway.config;
 
+import com.github.dapeng.gateway.auth.ReplayGuard;
 import com.github.dapeng.gateway.auth.WhiteListHandler;
+import com.github.dapeng.gateway.auth.WhiteListWatcher;
+import com.github.dapeng.gateway.route.StickyRouter;
 import com.github.dapeng.openapi.cache.ZkBootstrap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.util.Set;
+
 import static com.github.dapeng.gateway.util.Constants.DEFAULT_ZOOKEEPER_HOST;
 import static com.github.dapeng.gateway.util.SysEnvUtil.*;
 
@@ -30,11 +36,28 @@ public class ApiGateWayConfig {
         }
 
         if (Boolean.parseBoolean(WHITE_LIST_ENABLE)) {
-            new ZkBootstrap().filterInitWhiteList(WhiteListHandler.initWhiteList());
+            Set<String> whiteList = WhiteListHandler.initWhiteList();
+            boolean reload = Boolean.parseBoolean(WHITE_LIST_RELOAD_ENABLE) && new File(WhiteListHandler.WHITE_LIST_FILE).exists();
+            if (reload) {
+                // 热加载时 zookeeper 客户端跟踪全部服务, 白名单只在网关侧过滤, 新增服务不需要再次初始化 zookeeper 客户端
+                new ZkBootstrap().init();
+            } else {
+                new ZkBootstrap().filterInitWhiteList(whiteList);
+            }
+            WhiteListHandler.publishWhiteList(whiteList);
+            if (reload) {
+                WhiteListWatcher.start(WhiteListHandler.WHITE_LIST_FILE);
+            }
         } else {
             new ZkBootstrap().init();
+            WhiteListHandler.useZookeeperWhiteList();
+        }
+
+        if (ReplayGuard.enabled()) {
+            LOGGER.info("auth timestamp window check enabled, window: {}ms, replay check: {}", AUTH_TIMESTAMP_WINDOW, AUTH_REPLAY_ENABLE);
         }
 
+        StickyRouter.start();
 
     }
 }
@@ -0,0 +1,94 @@
+package com.github.dapeng.gateway.http;
+
+import com.github.dapeng.echo.EchoClient;
+import com.github.dapeng.gateway.util.SysEnvUtil;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.util.Set;
+import java.util.concurrent.*;
+
+/**
+ * 异步 echo, 结果短时间缓存.
+ * <p>
+ * EchoClient.echo() 是阻塞调用, 放到独立线程池执行, 不占用 netty worker 线程;
+ * 同一服务同一时刻只有一个 echo 在进行, 并发的请求共享结果, 成功和失败都缓存 {@link SysEnvUtil#ECHO_CACHE_TTL},
+ * 监控频繁探测时不会放大对后端的调用. 服务移出白名单时由 {@link #invalidate(Set)} 清除其缓存.
+ *
+ * @author agent 2026.10.19
+ */
+public final class EchoCache {
+    private static final long TTL_NANOS = TimeUnit.MILLISECONDS.toNanos(Long.parseLong(SysEnvUtil.ECHO_CACHE_TTL));
+    private static final int THREADS = Integer.parseInt(SysEnvUtil.ECHO_THREADS);
+    /**
+     * 排队的 echo 超过该数量时直接失败
+     */
+    private static final int MAX_QUEUED = 1024;
+
+    private static final ExecutorService EXECUTOR = new ThreadPoolExecutor(THREADS, THREADS, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(MAX_QUEUED), new DefaultThreadFactory("dapeng-mesh-echo", true));
+
+    private static final ConcurrentHashMap<String, Entry> CACHE = new ConcurrentHashMap<>();
+
+    private EchoCache() {
+    }
+
+    /**
+     * 清除指定服务所有版本的缓存, 进行中的 echo 照常完成, 但结果不再被复用
+     *
+     * @param services 服务全名(namespace.name)
+     */
+    public static void invalidate(Set<String> services) {
+        if (services.isEmpty()) {
+            return;
+        }
+        CACHE.keySet().removeIf(key -> services.contains(key.substring(0, key.lastIndexOf(':'))));
+    }
+
+    /**
+     * @return echo 结果, 失败时以异常完成
+     */
+    public static CompletableFuture<String> echo(String service, String version) {
+        String key = service + ":" + version;
+        long now = System.nanoTime();
+        Entry entry = CACHE.get(key);
+        if (entry != null && !entry.expired(now)) {
+            return entry.result;
+        }
+        Entry fresh = new Entry(now);
+        boolean owner = entry == null ? CACHE.putIfAbsent(key, fresh) == null : CACHE.replace(key, entry, fresh);
+        if (!owner) {
+            // 其它线程刚刚发起了 echo
+            Entry current = CACHE.get(key);
+            return current != null ? current.result : echo(service, version);
+        }
+        try {
+            EXECUTOR.execute(() -> {
+                try {
+                    fresh.result.complete(new EchoClient(service, version).echo());
+                } catch (Throwable e) {
+                    fresh.result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            fresh.result.completeExceptionally(e);
+            CACHE.remove(key, fresh);
+        }
+        return fresh.result;
+    }
+
+    private static final class Entry {
+        private final CompletableFuture<String> result = new CompletableFuture<>();
+        private final long createdNanos;
+
+        private Entry(long createdNanos) {
+            this.createdNanos = createdNanos;
+        }
+
+        /**
+         * 进行中的 echo 不过期, 完成后从发起时刻起计算 TTL
+         */
+        private boolean expired(long now) {
+            return result.isDone() && now - createdNanos > TTL_NANOS;
+        }
+    }
+}
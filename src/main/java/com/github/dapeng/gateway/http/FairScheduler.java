@@ -0,0 +1,363 @@
+package com.github.dapeng.gateway.http;
+
+import com.github.dapeng.gateway.metrics.GatewayMetrics;
+import com.github.dapeng.gateway.metrics.LogHistogram;
+import com.github.dapeng.gateway.netty.request.RequestContext;
+import com.github.dapeng.gateway.util.DapengMeshCode;
+import com.github.dapeng.gateway.util.SysEnvUtil;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.ScheduledFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 后端调用的加权公平排队.
+ * <p>
+ * 同时进行的后端调用数达到 {@link SysEnvUtil#FAIR_MAX_CONCURRENCY} 后, 新请求按 apiKey 所属级别进入各自的队列,
+ * 有调用结束时按差额轮询(DRR)从各级队列取出请求: 每轮每一级可以取出权重个请求, 批量导入的合作方不会饿死实时的 POS 请求.
+ * 队列长度和排队时间都有上限, 超出时返回 {@link DapengMeshCode#MeshBusy}.
+ * <p>
+ * 未达到上限且没有排队时只有一次 CAS, 不加锁; 排队、出队都在一把锁内完成.
+ * 取出的请求在原连接的 event loop 上执行.
+ * <p>
+ * 排队的请求在 channelRead 返回后才执行, 入队时 retain 请求, 执行结束、排队超时或连接已断开时 release;
+ * 不写响应就离开队列时结束 {@link com.github.dapeng.gateway.netty.InFlightTracker} 的计数.
+ *
+ * @author agent 2026.10.19
+ */
+public final class FairScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(FairScheduler.class);
+
+    static final String DEFAULT_TIER = "default";
+
+    private static final int MAX_CONCURRENCY = Integer.parseInt(SysEnvUtil.FAIR_MAX_CONCURRENCY);
+    private static final int QUEUE_MAX = Integer.parseInt(SysEnvUtil.FAIR_QUEUE_MAX);
+    private static final long QUEUE_TIMEOUT_MILLIS = Long.parseLong(SysEnvUtil.FAIR_QUEUE_TIMEOUT);
+
+    private static final Tier[] TIERS = tiers(SysEnvUtil.FAIR_TIERS);
+    private static final Map<String, Tier> TIER_BY_API_KEY = tierByApiKey(SysEnvUtil.FAIR_TIER_API_KEYS);
+    private static final Tier DEFAULT = tier(DEFAULT_TIER);
+
+    private static final AtomicInteger RUNNING = new AtomicInteger();
+    /**
+     * 所有级别排队的请求数, 只在锁内修改
+     */
+    private static volatile int queued;
+    private static final ReentrantLock LOCK = new ReentrantLock();
+    /**
+     * DRR 当前轮到的级别
+     */
+    private static int cursor;
+
+    /**
+     * 排队时间(us), 锁内写入
+     */
+    private static final LogHistogram WAIT_MICROS = new LogHistogram();
+    private static final LongAdder REJECTED = new LongAdder();
+    private static final LongAdder TIMED_OUT = new LongAdder();
+
+    static {
+        if (enabled()) {
+            GatewayMetrics.gauge("dapeng_mesh_fair_running", "Backend calls admitted by the fair scheduler", RUNNING::get);
+            GatewayMetrics.gauge("dapeng_mesh_fair_queued", "Requests waiting for backend capacity", () -> queued);
+            GatewayMetrics.counter("dapeng_mesh_fair_rejected_total", "Requests rejected because the tier queue was full", REJECTED::sum);
+            GatewayMetrics.counter("dapeng_mesh_fair_timed_out_total", "Requests that waited longer than the queue timeout", TIMED_OUT::sum);
+            GatewayMetrics.gauge("dapeng_mesh_fair_wait_p99_micros", "99th percentile of queue wait", () -> waitQuantile(0.99));
+            GatewayMetrics.gauge("dapeng_mesh_fair_wait_max_micros", "Maximum queue wait", () -> waitQuantile(1));
+            for (Tier tier : TIERS) {
+                GatewayMetrics.gauge("dapeng_mesh_fair_queue_length_" + tier.name, "Requests queued in tier " + tier.name, () -> tier.queue.size());
+                GatewayMetrics.counter("dapeng_mesh_fair_dispatched_" + tier.name + "_total", "Queued requests of tier " + tier.name + " dispatched", tier.dispatched::sum);
+            }
+            logger.info("fair scheduler enabled, max concurrency: {}, tiers: {}", MAX_CONCURRENCY, Arrays.toString(TIERS));
+        }
+    }
+
+    private FairScheduler() {
+    }
+
+    public static boolean enabled() {
+        return MAX_CONCURRENCY > 0;
+    }
+
+    /**
+     * 申请一个后端调用名额.
+     * 有空闲名额时返回 true, 由调用方直接执行; 否则 task 进入所属级别的队列, 之后在 ctx 的 event loop 上执行,
+     * 队列已满或排队超时时直接响应繁忙. 执行的请求结束后必须调用 {@link #release()}.
+     *
+     * @return 是否可以立即执行
+     */
+    public static boolean admit(RequestContext context, ChannelHandlerContext ctx, Runnable task) {
+        if (!enabled()) {
+            return true;
+        }
+        if (queued == 0 && tryAcquire()) {
+            return true;
+        }
+        Tier tier = context.apiKey().map(TIER_BY_API_KEY::get).orElse(DEFAULT);
+        Waiter waiter;
+        LOCK.lock();
+        try {
+            if (queued == 0 && tryAcquire()) {
+                return true;
+            }
+            if (tier.queue.size() >= QUEUE_MAX) {
+                REJECTED.increment();
+                waiter = null;
+            } else {
+                waiter = new Waiter(tier, context, ctx, task);
+                tier.queue.addLast(waiter);
+                queued++;
+                // 入队前后可能有调用结束, 再尝试一次, 避免无人唤醒
+                drainLocked();
+            }
+        } finally {
+            LOCK.unlock();
+        }
+        if (waiter == null) {
+            HttpProcessorUtils.sendErrorResponse(ctx, DapengMeshCode.MeshBusy, context, HttpResponseStatus.SERVICE_UNAVAILABLE);
+        } else {
+            waiter.schedule();
+        }
+        return false;
+    }
+
+    /**
+     * 后端调用结束, 归还名额并唤醒排队的请求
+     */
+    public static void release() {
+        if (!enabled()) {
+            return;
+        }
+        RUNNING.decrementAndGet();
+        if (queued > 0) {
+            LOCK.lock();
+            try {
+                drainLocked();
+            } finally {
+                LOCK.unlock();
+            }
+        }
+    }
+
+    private static boolean tryAcquire() {
+        for (; ; ) {
+            int running = RUNNING.get();
+            if (running >= MAX_CONCURRENCY) {
+                return false;
+            }
+            if (RUNNING.compareAndSet(running, running + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private static void drainLocked() {
+        while (queued > 0 && tryAcquire()) {
+            Waiter waiter = nextLocked();
+            queued--;
+            if (!waiter.dispatch()) {
+                // 客户端已经断开, 不再调用后端, 名额留给下一个
+                RUNNING.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * 差额轮询: 轮到某一级时差额加上权重, 每取出一个请求减一, 差额用完或队列空了轮到下一级
+     */
+    private static Waiter nextLocked() {
+        for (; ; ) {
+            Tier tier = TIERS[cursor];
+            if (tier.queue.isEmpty()) {
+                tier.deficit = 0;
+                cursor = (cursor + 1) % TIERS.length;
+                continue;
+            }
+            if (tier.deficit == 0) {
+                tier.deficit = tier.weight;
+            }
+            tier.deficit--;
+            Waiter waiter = tier.queue.pollFirst();
+            if (tier.queue.isEmpty()) {
+                tier.deficit = 0;
+            }
+            if (tier.deficit == 0) {
+                cursor = (cursor + 1) % TIERS.length;
+            }
+            return waiter;
+        }
+    }
+
+    private static void timeout(Waiter waiter) {
+        LOCK.lock();
+        try {
+            if (!waiter.tier.queue.remove(waiter)) {
+                // 已经出队
+                return;
+            }
+            queued--;
+        } finally {
+            LOCK.unlock();
+        }
+        TIMED_OUT.increment();
+        try {
+            HttpProcessorUtils.sendErrorResponse(waiter.ctx, DapengMeshCode.MeshBusy, waiter.context, HttpResponseStatus.SERVICE_UNAVAILABLE);
+        } finally {
+            ReferenceCountUtil.release(waiter.context.request());
+        }
+    }
+
+    private static long waitQuantile(double quantile) {
+        return WAIT_MICROS.count() == 0 ? 0 : WAIT_MICROS.valueAtQuantile(quantile);
+    }
+
+    static Tier[] tiers(String config) {
+        List<Tier> tiers = new ArrayList<>();
+        for (String item : config.split(",")) {
+            item = item.trim();
+            int colon = item.indexOf(':');
+            if (item.isEmpty()) {
+                continue;
+            }
+            try {
+                String name = colon < 0 ? item : item.substring(0, colon).trim();
+                int weight = colon < 0 ? 1 : Integer.parseInt(item.substring(colon + 1).trim());
+                tiers.add(new Tier(name, Math.max(weight, 1)));
+            } catch (NumberFormatException e) {
+                logger.warn("invalid fair scheduler tier, ignored: {}", item);
+            }
+        }
+        if (tiers.stream().noneMatch(tier -> DEFAULT_TIER.equals(tier.name))) {
+            tiers.add(new Tier(DEFAULT_TIER, 1));
+        }
+        return tiers.toArray(new Tier[0]);
+    }
+
+    private static Map<String, Tier> tierByApiKey(String config) {
+        Map<String, Tier> result = new HashMap<>();
+        for (String item : config.split(",")) {
+            int colon = item.lastIndexOf(':');
+            if (colon <= 0) {
+                continue;
+            }
+            String tierName = item.substring(colon + 1).trim();
+            Tier tier = tier(tierName);
+            if (tier == null) {
+                logger.warn("unknown fair scheduler tier {}, apiKey {} uses the default tier", tierName, item.substring(0, colon).trim());
+                continue;
+            }
+            result.put(item.substring(0, colon).trim(), tier);
+        }
+        return result;
+    }
+
+    private static Tier tier(String name) {
+        for (Tier tier : TIERS) {
+            if (tier.name.equals(name)) {
+                return tier;
+            }
+        }
+        return null;
+    }
+
+    static final class Tier {
+        final String name;
+        final int weight;
+        /**
+         * 锁内访问
+         */
+        final ArrayDeque<Waiter> queue = new ArrayDeque<>();
+        int deficit;
+        final LongAdder dispatched = new LongAdder();
+
+        Tier(String name, int weight) {
+            this.name = name;
+            this.weight = weight;
+        }
+
+        @Override
+        public String toString() {
+            return name + ":" + weight;
+        }
+    }
+
+    private static final class Waiter {
+        final Tier tier;
+        final RequestContext context;
+        final ChannelHandlerContext ctx;
+        final Runnable task;
+        final long queuedNanos = System.nanoTime();
+        private ScheduledFuture<?> timer;
+        private boolean done;
+
+        /**
+         * 锁内创建, retain 请求直到离开队列
+         */
+        Waiter(Tier tier, RequestContext context, ChannelHandlerContext ctx, Runnable task) {
+            this.tier = tier;
+            this.context = context;
+            this.ctx = ctx;
+            this.task = task;
+            ReferenceCountUtil.retain(context.request());
+        }
+
+        /**
+         * 入队后设置排队超时, 不在锁内调用
+         */
+        void schedule() {
+            ScheduledFuture<?> future = ctx.executor().schedule(() -> timeout(this), QUEUE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            synchronized (this) {
+                if (done) {
+                    future.cancel(false);
+                } else {
+                    timer = future;
+                }
+            }
+        }
+
+        /**
+         * 锁内调用
+         *
+         * @return 连接已关闭时返回 false
+         */
+        boolean dispatch() {
+            WAIT_MICROS.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - queuedNanos));
+            tier.dispatched.increment();
+            synchronized (this) {
+                done = true;
+                if (timer != null) {
+                    timer.cancel(false);
+                }
+            }
+            if (ctx.channel().isActive()) {
+                try {
+                    ctx.executor().execute(this::run);
+                    return true;
+                } catch (RejectedExecutionException e) {
+                    // event loop 已关闭
+                }
+            }
+            ReferenceCountUtil.release(context.request());
+            HttpProcessorUtils.getInFlightTracker().end(context);
+            return false;
+        }
+
+        private void run() {
+            try {
+                task.run();
+            } finally {
+                // 后端调用发起时已读完请求, 之后只读 header
+                ReferenceCountUtil.release(context.request());
+            }
+        }
+    }
+}
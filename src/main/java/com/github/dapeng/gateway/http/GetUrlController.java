@@ -1,10 +1,14 @@
 package com.github.dapeng.gateway.http;
 
 import com.github.dapeng.core.SoaException;
-import com.github.dapeng.echo.EchoClient;
 import com.github.dapeng.gateway.http.match.Pair;
 import com.github.dapeng.gateway.http.match.UrlMappingResolver;
+import com.github.dapeng.gateway.metrics.GatewayMetrics;
+import com.github.dapeng.gateway.metrics.SlowRequests;
+import com.github.dapeng.gateway.netty.ConnectionDrainer;
+import com.github.dapeng.gateway.util.Constants;
 import com.github.dapeng.gateway.util.DapengMeshCode;
+import com.github.dapeng.gateway.util.JsonEnvelope;
 import com.github.dapeng.json.OptimizedMetadata;
 import com.github.dapeng.openapi.cache.ServiceCache;
 import io.netty.handler.codec.http.HttpResponseStatus;
@@ -14,6 +18,9 @@ import org.slf4j.LoggerFactory;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Get 请求的 url 映射 <-> 处理器
@@ -23,9 +30,32 @@ import java.util.Map;
 public class GetUrlController {
     private Logger logger = LoggerFactory.getLogger(GetUrlController.class);
     /***
-     * netty mesh 容器状态,即将关闭时显示 GREEN
+     * netty mesh 容器状态,启动预热时显示 WARMING,即将关闭时显示 YELLOW
      */
-    public static MeshHealthStatus status = MeshHealthStatus.GREEN;
+    private static final AtomicReference<MeshHealthStatus> STATUS = new AtomicReference<>(MeshHealthStatus.GREEN);
+
+    public static MeshHealthStatus status() {
+        return STATUS.get();
+    }
+
+    public static void status(MeshHealthStatus status) {
+        STATUS.set(status);
+    }
+
+    /**
+     * 当前状态为 expect 时才切换, 预热与关闭并发时不会覆盖对方设置的状态
+     */
+    public static boolean compareAndSetStatus(MeshHealthStatus expect, MeshHealthStatus update) {
+        return STATUS.compareAndSet(expect, update);
+    }
+
+    /**
+     * 固定响应, 预编码. 健康检查按状态各缓存一份, 状态切换即换用对应的响应
+     */
+    private static final HttpResponseEntity HEALTH_RUNNING = HttpResponseEntity.preEncoded(HttpProcessorUtils.wrapResponse(Constants.GET_HEALTH_CHECK_URL, "health check container is running"), HttpResponseStatus.OK);
+    private static final HttpResponseEntity HEALTH_SHUTDOWN_SOON = HttpResponseEntity.preEncoded(JsonEnvelope.error(DapengMeshCode.MeshShutdownSoon), HttpResponseStatus.INTERNAL_SERVER_ERROR);
+    private static final HttpResponseEntity HEALTH_WARMING = HttpResponseEntity.preEncoded(JsonEnvelope.error(DapengMeshCode.MeshWarming), HttpResponseStatus.SERVICE_UNAVAILABLE);
+    private static final HttpResponseEntity CHECK = HttpResponseEntity.preEncoded(HttpProcessorUtils.wrapResponse(Constants.GET_CHECK, "dapeng-mesh is running"), HttpResponseStatus.OK);
 
     /**
      * 将康检查
@@ -34,12 +64,19 @@ public class GetUrlController {
      * @return resp
      */
     public HttpResponseEntity handlerHealth(String url) {
-        logger.debug("handlerHealth check,container status: " + status);
-        if (status == MeshHealthStatus.YELLOW) {
-            logger.info("handlerHealth check,container status: " + status);
-            return new HttpResponseEntity(HttpProcessorUtils.wrapErrorResponse(DapengMeshCode.MeshShutdownSoon), HttpResponseStatus.INTERNAL_SERVER_ERROR);
+        MeshHealthStatus current = STATUS.get();
+        logger.debug("handlerHealth check,container status: " + current);
+        ConnectionDrainer.healthChecked(current != MeshHealthStatus.YELLOW);
+        if (current == MeshHealthStatus.YELLOW) {
+            logger.info("handlerHealth check,container status: " + current);
+            GatewayMetrics.recordMeshCode(DapengMeshCode.MeshShutdownSoon);
+            return HEALTH_SHUTDOWN_SOON;
+        }
+        if (current == MeshHealthStatus.WARMING) {
+            GatewayMetrics.recordMeshCode(DapengMeshCode.MeshWarming);
+            return HEALTH_WARMING;
         }
-        return new HttpResponseEntity(HttpProcessorUtils.wrapResponse(url, "health check container is running"), HttpResponseStatus.OK);
+        return HEALTH_RUNNING;
     }
 
     /**
@@ -50,36 +87,93 @@ public class GetUrlController {
      */
     public HttpResponseEntity getCheck(String url) {
         logger.debug("check support url request, uri: {}", url);
-        return new HttpResponseEntity(HttpProcessorUtils.wrapResponse(url, "dapeng-mesh is running"), HttpResponseStatus.OK);
+        return CHECK;
     }
 
     /**
-     * 调用指定服务的echo方法，判断服务是否健康
+     * 调用指定服务的echo方法，判断服务是否健康, 异步执行并短时间缓存结果
      */
-    public HttpResponseEntity echo(String url) {
+    public CompletableFuture<HttpResponseEntity> echo(String url) {
         Pair<String, String> pair = UrlMappingResolver.handlerEchoUrl(url);
-        if (pair != null) {
-            try {
-                String echoResp = new EchoClient(pair.getKey(), pair.getValue()).echo();
+        if (pair == null) {
+            return CompletableFuture.completedFuture(new HttpResponseEntity(HttpProcessorUtils.wrapResponse(url, DapengMeshCode.EchoUnknowEx), HttpResponseStatus.OK));
+        }
+        return EchoCache.echo(pair.getKey(), pair.getValue()).handle((echoResp, ex) -> {
+            if (ex == null) {
                 return new HttpResponseEntity(HttpProcessorUtils.logResponse(url, echoResp), HttpResponseStatus.OK);
-            } catch (SoaException ex) {
-                logger.error(ex.getMessage(), ex);
-                return new HttpResponseEntity(HttpProcessorUtils.wrapResponse(url, ex), HttpResponseStatus.OK);
             }
+            Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+            if (!(cause instanceof SoaException)) {
+                // 非 SoaException 交给 ServerProcessHandler 统一处理
+                throw ex instanceof CompletionException ? (CompletionException) ex : new CompletionException(ex);
+            }
+            logger.error(cause.getMessage(), cause);
+            return new HttpResponseEntity(HttpProcessorUtils.wrapResponse(url, cause), HttpResponseStatus.OK);
+        });
+    }
+
+    /**
+     * 并发 echo 所有服务, 汇总结果
+     *
+     * @param url {@link com.github.dapeng.gateway.util.Constants#ECHO_ALL}
+     */
+    public CompletableFuture<HttpResponseEntity> echoAll(String url) {
+        List<OptimizedMetadata.OptimizedService> services = new ArrayList<>(ServiceCache.getServices().values());
+        List<CompletableFuture<String>> results = new ArrayList<>(services.size());
+        for (OptimizedMetadata.OptimizedService service : services) {
+            results.add(EchoCache.echo(service.getService().namespace + "." + service.getService().name, service.getService().meta.version));
         }
-        return new HttpResponseEntity(HttpProcessorUtils.wrapResponse(url, DapengMeshCode.EchoUnknowEx), HttpResponseStatus.OK);
+        return CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).handle((ignored, e) -> {
+            StringBuilder items = new StringBuilder(services.size() * 96);
+            int healthy = 0;
+            for (int i = 0; i < services.size(); i++) {
+                CompletableFuture<String> result = results.get(i);
+                boolean ok = !result.isCompletedExceptionally();
+                if (ok) {
+                    healthy++;
+                }
+                if (i > 0) {
+                    items.append(',');
+                }
+                items.append("{\"service\":\"").append(services.get(i).getService().namespace).append('.').append(services.get(i).getService().name)
+                        .append("\",\"version\":\"").append(services.get(i).getService().meta.version)
+                        .append("\",\"healthy\":").append(ok).append('}');
+            }
+            String resp = "{\"status\":" + (healthy == services.size() ? 1 : 0) + ",\"total\":" + services.size()
+                    + ",\"healthy\":" + healthy + ",\"services\":[" + items + "]}";
+            return new HttpResponseEntity(HttpProcessorUtils.logResponse(url, resp), HttpResponseStatus.OK);
+        });
     }
 
     /**
-     * 服务列表
+     * 服务列表, 支持过滤和分页: ?service=OrderService&offset=0&limit=100
      *
+     * @param parameters 查询参数, 可能为空
      * @return
      */
-    public HttpResponseEntity serviceList(String url) {
-        Map<String, OptimizedMetadata.OptimizedService> services = ServiceCache.getServices();
-        List<String> list = new ArrayList<>(16);
-        services.forEach((k, v) -> list.add(v.getService().namespace + "." + v.getService().name + ":" + v.getService().meta.version));
-        return new HttpResponseEntity(HttpProcessorUtils.wrapResponse(url, list.toString()), HttpResponseStatus.OK);
+    public HttpResponseEntity serviceList(String url, Map<String, List<String>> parameters) {
+        if (parameters == null || parameters.isEmpty()) {
+            return ServiceListCache.all();
+        }
+        return ServiceListCache.page(parameter(parameters, "service"),
+                intParameter(parameters, "offset", 0), intParameter(parameters, "limit", ServiceListCache.MAX_PAGE_SIZE));
+    }
+
+    private static String parameter(Map<String, List<String>> parameters, String name) {
+        List<String> values = parameters.get(name);
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+
+    private static int intParameter(Map<String, List<String>> parameters, String name, int defaultValue) {
+        String value = parameter(parameters, name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
     }
 
     /**
@@ -92,4 +186,23 @@ public class GetUrlController {
         return new HttpResponseEntity(HttpProcessorUtils.logResponse(url, System.currentTimeMillis()), HttpResponseStatus.OK);
     }
 
+    /**
+     * Prometheus 指标
+     *
+     * @param url {@link com.github.dapeng.gateway.util.Constants#METRICS}
+     * @return Prometheus text format
+     */
+    public HttpResponseEntity metrics(String url) {
+        return new HttpResponseEntity(GatewayMetrics.scrape(), HttpResponseStatus.OK);
+    }
+
+    /**
+     * 当前及上一个窗口最慢的请求及各阶段时间线
+     *
+     * @param url {@link com.github.dapeng.gateway.util.Constants#SLOW_REQUESTS}
+     */
+    public HttpResponseEntity slowRequests(String url) {
+        return new HttpResponseEntity(SlowRequests.toJson(), HttpResponseStatus.OK);
+    }
+
 }
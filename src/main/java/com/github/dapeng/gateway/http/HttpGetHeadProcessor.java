@@ -4,10 +4,12 @@ import com.github.dapeng.gateway.netty.request.RequestContext;
 import com.github.dapeng.gateway.util.Constants;
 import com.github.dapeng.gateway.util.DapengMeshCode;
 import io.netty.handler.codec.http.FullHttpRequest;
-import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.QueryStringDecoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * @author maple 2018.08.28 下午3:21
  */
@@ -16,33 +18,52 @@ public class HttpGetHeadProcessor {
 
     private GetUrlController controller = new GetUrlController();
 
-    public HttpResponseEntity handlerRequest(RequestContext context) {
+    /**
+     * echo 类请求异步完成, 其余请求返回已完成的 future
+     */
+    public CompletableFuture<HttpResponseEntity> handlerRequest(RequestContext context) {
         String url = processUrl(context.requestUrl());
 
         switch (url) {
             case Constants.GET_HEALTH_CHECK_URL:
 
-                return controller.handlerHealth(url);
+                return completed(controller.handlerHealth(url));
             case Constants.GET_CHECK:
 
-                return controller.getCheck(url);
+                return completed(controller.getCheck(url));
             case Constants.ECHO_PREFIX:
 
                 return controller.echo(url);
+            case Constants.ECHO_ALL:
+
+                return controller.echoAll(url);
             case Constants.SERVICE_LIST:
 
-                return controller.serviceList(url);
+                String requestUrl = context.requestUrl();
+                return completed(controller.serviceList(url, requestUrl.indexOf('?') > 0 ? new QueryStringDecoder(requestUrl).parameters() : null));
             case Constants.SYS_TIME_SYNC:
 
-                return controller.syncSysTime(url);
+                return completed(controller.syncSysTime(url));
+            case Constants.METRICS:
+
+                return completed(controller.metrics(url));
+            case Constants.SLOW_REQUESTS:
+
+                return completed(controller.slowRequests(url));
             default:
                 if (url.contains(Constants.ECHO_PREFIX)) {
                     return controller.echo(url);
                 }
                 break;
         }
-        logger.info("not support url request, uri: {}", url);
-        return new HttpResponseEntity(HttpProcessorUtils.wrapErrorResponse(url, DapengMeshCode.RequestUrlNotSupport), HttpResponseStatus.OK);
+        if (logger.isDebugEnabled()) {
+            logger.debug("not support url request, uri: {}", url);
+        }
+        return completed(HttpProcessorUtils.errorEntity(DapengMeshCode.RequestUrlNotSupport));
+    }
+
+    private static CompletableFuture<HttpResponseEntity> completed(HttpResponseEntity entity) {
+        return CompletableFuture.completedFuture(entity);
     }
 
     /**
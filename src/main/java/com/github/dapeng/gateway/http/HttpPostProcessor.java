@@ -3,6 +3,7 @@ package com.github.dapeng.gateway.http;
 import com.github.dapeng.core.InvocationContextImpl;
 import com.github.dapeng.core.SoaException;
 import com.github.dapeng.core.helper.SoaSystemEnvProperties;
+import com.github.dapeng.gateway.metrics.RequestEvents;
 import com.github.dapeng.gateway.netty.request.RequestContext;
 import com.github.dapeng.gateway.util.*;
 import com.github.dapeng.util.DumpUtil;
@@ -32,44 +33,95 @@ public class HttpPostProcessor {
             if (logger.isDebugEnabled()) {
                 logger.debug("Http:{}, 请求参数: {} ", context.requestUrl(), context.argumentToString());
             }
-            // fill invocationContext
-            fillInvocationProxy(context, ctx);
-
-            CompletableFuture<String> jsonResponse = (CompletableFuture<String>) PostUtil.postAsync(context);
-
-            long beginTime = System.currentTimeMillis();
-            jsonResponse.whenComplete((result, ex) -> {
-                if (ex != null) {
-                    String resp;
-                    if (ex instanceof SoaException) {
-                        resp = String.format("{\"responseCode\":\"%s\", \"responseMsg\":\"%s\", \"success\":\"%s\", \"status\":0}", ((SoaException) ex).getCode(), ((SoaException) ex).getMsg(), "{}");
-                        logger.info("soa-response: " + resp + " cost:" + (System.currentTimeMillis() - beginTime) + "ms");
-                    } else {
-                        resp = String.format("{\"responseCode\":\"%s\", \"responseMsg\":\"%s\", \"success\":\"%s\", \"status\":0}", DapengMeshCode.MeshUnknowEx.getCode(), ex.getMessage(), "{}");
-                        logger.info("soa-response: " + resp + " cost:" + (System.currentTimeMillis() - beginTime) + "ms");
-                    }
-                    HttpProcessorUtils.sendHttpResponse(ctx, resp, context.request(), HttpResponseStatus.OK);
+            // 后端并发达到上限时排队
+            if (FairScheduler.admit(context, ctx, () -> dispatchQueued(context, ctx))) {
+                dispatch(context, ctx);
+            }
+        } else {
+            HttpProcessorUtils.sendErrorResponse(ctx, DapengMeshCode.IllegalRequest, context, HttpResponseStatus.OK);
+        }
+    }
+
+    /**
+     * 排队后在 event loop 上执行, 异常处理与 {@link com.github.dapeng.gateway.netty.handler.ServerProcessHandler} 一致
+     */
+    private void dispatchQueued(RequestContext context, ChannelHandlerContext ctx) {
+        try {
+            dispatch(context, ctx);
+        } catch (SoaException e) {
+            logger.error("网关请求SoaException：" + e.getMessage());
+            HttpProcessorUtils.sendHttpResponseAndClose(ctx, HttpProcessorUtils.wrapExCodeResponse(e), context, HttpResponseStatus.INTERNAL_SERVER_ERROR);
+        } catch (Exception e) {
+            logger.error("网关处理请求失败: " + e.getMessage(), e);
+            HttpProcessorUtils.sendErrorResponseAndClose(ctx, DapengMeshCode.ProcessReqFailed, context, HttpResponseStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    private void dispatch(RequestContext context, ChannelHandlerContext ctx) throws SoaException {
+        // fill invocationContext
+        fillInvocationProxy(context, ctx);
+
+        context.dispatchNanos(System.nanoTime());
+        Object backendEvent = context.warmUp() ? null : RequestEvents.beginBackend();
+        CompletableFuture<String> jsonResponse;
+        try {
+            jsonResponse = (CompletableFuture<String>) PostUtil.postAsync(context);
+        } catch (SoaException | RuntimeException e) {
+            FairScheduler.release();
+            throw e;
+        }
 
+        String service = context.service().get();
+        HttpProcessorUtils.getInFlightTracker().beginService(service);
+
+        long beginTime = System.currentTimeMillis();
+        jsonResponse.whenComplete((result, ex) -> {
+            context.backendNanos(System.nanoTime());
+            RequestEvents.endBackend(backendEvent, context, ex == null);
+            HttpProcessorUtils.getInFlightTracker().endService(service);
+            FairScheduler.release();
+            if (ex != null) {
+                String resp;
+                if (ex instanceof SoaException) {
+                    resp = JsonEnvelope.error(((SoaException) ex).getCode(), ((SoaException) ex).getMsg());
                 } else {
-                    InvocationContextImpl invocationContext = (InvocationContextImpl) InvocationContextImpl.Factory.currentInstance();
-                    //正常返回情形respCode 0000 invocationContext.lastInvocationInfo()可能为空 NPE
-                    if (invocationContext.lastInvocationInfo() != null &&
-                            SoaSystemEnvProperties.SOA_NORMAL_RESP_CODE.equals(invocationContext.lastInvocationInfo().responseCode())) {
-
-                        String response = "{}".equals(result) ? "{\"status\":1}" : result.substring(0, result.lastIndexOf('}')) + ",\"status\":1}";
-                        logger.info("soa-response: " + DumpUtil.formatToString(response) + " cost:" + (System.currentTimeMillis() - beginTime) + "ms");
-                        HttpProcessorUtils.sendHttpResponse(ctx, response, context.request(), HttpResponseStatus.OK);
-                        return;
+                    resp = JsonEnvelope.error(DapengMeshCode.MeshUnknowEx.getCode(), ex.getMessage());
+                    logger.error("soa-response: " + resp + " cost:" + (System.currentTimeMillis() - beginTime) + "ms", ex);
+                }
+                if (logger.isDebugEnabled()) {
+                    logger.debug("soa-response: " + resp + " cost:" + (System.currentTimeMillis() - beginTime) + "ms");
+                }
+                HttpProcessorUtils.sendHttpResponse(ctx, resp, context, HttpResponseStatus.OK);
+
+            } else {
+                InvocationContextImpl invocationContext = (InvocationContextImpl) InvocationContextImpl.Factory.currentInstance();
+                //正常返回情形respCode 0000 invocationContext.lastInvocationInfo()可能为空 NPE
+                if (invocationContext.lastInvocationInfo() != null &&
+                        SoaSystemEnvProperties.SOA_NORMAL_RESP_CODE.equals(invocationContext.lastInvocationInfo().responseCode())) {
+
+                    String response = appendSuccessStatus(result);
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("soa-response: " + DumpUtil.formatToString(response) + " cost:" + (System.currentTimeMillis() - beginTime) + "ms");
                     }
-                    //不是 0000 的返回
-                    logger.info("soa-response: " + DumpUtil.formatToString(result) + " cost:" + (System.currentTimeMillis() - beginTime) + "ms");
-                    HttpProcessorUtils.sendHttpResponse(ctx, result, context.request(), HttpResponseStatus.OK);
+                    HttpProcessorUtils.sendHttpResponse(ctx, response, context, HttpResponseStatus.OK);
+                    return;
+                }
+                //不是 0000 的返回
+                if (logger.isDebugEnabled()) {
+                    logger.debug("soa-response: " + DumpUtil.formatToString(result) + " cost:" + (System.currentTimeMillis() - beginTime) + "ms");
                 }
-            });
+                HttpProcessorUtils.sendHttpResponse(ctx, result, context, HttpResponseStatus.OK);
+            }
+        });
+    }
 
-        } else {
-            HttpProcessorUtils.sendHttpResponse(ctx, HttpProcessorUtils.wrapErrorResponse(DapengMeshCode.IllegalRequest), context.request(), HttpResponseStatus.OK);
-        }
+    /**
+     * 正常返回时在 json 末尾追加 "status":1
+     *
+     * @param result 后端返回的 json
+     */
+    static String appendSuccessStatus(String result) {
+        return "{}".equals(result) ? "{\"status\":1}" : result.substring(0, result.lastIndexOf('}')) + ",\"status\":1}";
     }
 
     /**
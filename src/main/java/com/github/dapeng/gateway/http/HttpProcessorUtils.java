@@ -1,9 +1,17 @@
 package com.github.dapeng.gateway.http;
 
 import com.github.dapeng.core.SoaException;
+import com.github.dapeng.gateway.log.AccessLog;
+import com.github.dapeng.gateway.metrics.GatewayMetrics;
+import com.github.dapeng.gateway.metrics.RequestEvents;
+import com.github.dapeng.gateway.netty.ConnectionGovernor;
+import com.github.dapeng.gateway.netty.ConnectionState;
+import com.github.dapeng.gateway.netty.InFlightTracker;
 import com.github.dapeng.gateway.netty.request.RequestContext;
 import com.github.dapeng.gateway.util.DapengMeshCode;
+import com.github.dapeng.gateway.util.JsonEnvelope;
 import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.http.*;
@@ -11,7 +19,6 @@ import io.netty.util.CharsetUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author maple 2018.08.28 下午4:53
@@ -20,54 +27,142 @@ public class HttpProcessorUtils {
     private static Logger logger = LoggerFactory.getLogger(HttpProcessorUtils.class);
 
     //未完成请求计数
-    private static AtomicInteger requestCounter = new AtomicInteger(0);
+    private static final InFlightTracker inFlightTracker = new InFlightTracker();
+
+    private static final HttpResponseEntity[] ERRORS = new HttpResponseEntity[DapengMeshCode.values().length];
+
+    static {
+        for (DapengMeshCode code : DapengMeshCode.values()) {
+            ERRORS[code.ordinal()] = HttpResponseEntity.preEncoded(JsonEnvelope.error(code), HttpResponseStatus.OK);
+        }
+        GatewayMetrics.gauge("dapeng_mesh_requests_in_flight", "Requests received but not yet responded", inFlightTracker::inFlight);
+    }
 
     public static void sendHttpResponse(ChannelHandlerContext ctx, HttpResponseEntity entity, RequestContext context) {
-        sendHttpResponse(ctx, entity.getContent(), context.request(), entity.getStatus());
+        if (entity.body() == null) {
+            sendHttpResponse(ctx, entity.getContent(), context, entity.getStatus());
+            return;
+        }
+        // 预编码报文, 共享同一份只读内存
+        writeResponse(ctx, entity.bytes(), entity.body().retainedDuplicate(), context, entity.getStatus(), context == null || context.request() == null);
     }
 
 
     /**
-     * 返回信息给前端 http
+     * 返回信息给前端 http, 根据请求的 keep-alive 决定是否关闭连接
      *
      * @param ctx     handler's context
      * @param content msg's info
-     * @param request msg's request
+     * @param context msg's request context, 为空时关闭连接
      * @param status  http status
+     */
+    public static void sendHttpResponse(ChannelHandlerContext ctx, String content, RequestContext context, HttpResponseStatus status) {
+        writeResponse(ctx, content, context, status, context == null || context.request() == null);
+    }
+
+    /**
+     * 返回信息给前端 http, 并关闭连接
+     *
+     * @param context msg's request context, 可能为空
+     */
+    public static void sendHttpResponseAndClose(ChannelHandlerContext ctx, String content, RequestContext context, HttpResponseStatus status) {
+        writeResponse(ctx, content, context, status, true);
+    }
+
+    /**
      * @link 不使用 Unpooled.copiedBuffer(content, CharsetUtil.UTF_8)
      * @link Unpooled.wrappedBuffer
      */
-    public static void sendHttpResponse(ChannelHandlerContext ctx, String content, FullHttpRequest request, HttpResponseStatus status) {
-        try {
-            ByteBuf wrapBuf = ctx.alloc().buffer(content.length());
-            wrapBuf.writeBytes(content.getBytes(CharsetUtil.UTF_8));
+    private static void writeResponse(ChannelHandlerContext ctx, String content, RequestContext context, HttpResponseStatus status, boolean close) {
+        byte[] bytes = content.getBytes(CharsetUtil.UTF_8);
+        ByteBuf wrapBuf = ctx.alloc().buffer(bytes.length);
+        wrapBuf.writeBytes(bytes);
+        writeResponse(ctx, bytes, wrapBuf, context, status, close);
+    }
 
+    private static void writeResponse(ChannelHandlerContext ctx, byte[] bytes, ByteBuf wrapBuf, RequestContext context, HttpResponseStatus status, boolean close) {
+        boolean firstResponse = context != null && !context.completed();
+        // 启动预热的请求不计入指标及访问日志
+        boolean record = context == null || !context.warmUp();
+        try {
             FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, status, wrapBuf);
             response.headers().set(HttpHeaderNames.CONTENT_TYPE, "text/plain; charset=UTF-8");
             response.headers().setInt(HttpHeaderNames.CONTENT_LENGTH, response.content().readableBytes());
 
-            if (request == null) {
-                ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+            if (record) {
+                AccessLog.log(context, status, bytes);
+            }
+
+            // 网关即将关闭时不再保持连接
+            boolean keepAlive = !close && GetUrlController.status() != MeshHealthStatus.YELLOW && HttpUtil.isKeepAlive(context.request());
+            if (keepAlive) {
+                response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
             } else {
-                boolean isKeepAlive = HttpUtil.isKeepAlive(request);
-                if (isKeepAlive) {
-                    response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
-                    ctx.writeAndFlush(response);
-                } else {
-                    ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+                response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE);
+            }
+            if (context != null) {
+                context.writeNanos(System.nanoTime());
+            }
+            int responseBytes = bytes.length;
+            Object writeEvent = record ? RequestEvents.beginWrite() : null;
+            ChannelFuture future = ctx.writeAndFlush(response);
+            future.addListener(f -> {
+                if (firstResponse) {
+                    ConnectionState connection = ConnectionState.get(ctx.channel());
+                    if (connection != null) {
+                        connection.responseWritten();
+                        ConnectionGovernor.updateAutoRead(ctx.channel(), connection);
+                    }
+                }
+                if (record) {
+                    GatewayMetrics.recordResponse(context, status, responseBytes);
                 }
+                RequestEvents.endWrite(writeEvent, context, status.code(), responseBytes, f.isSuccess());
+            });
+            if (!keepAlive) {
+                future.addListener(ChannelFutureListener.CLOSE);
             }
         } finally {
             //请求返回，计数 -1
-            requestCounter.decrementAndGet();
+            inFlightTracker.end(context);
         }
     }
 
 
+    /**
+     * 返回网关错误码, 报文已预先编码, 不再格式化和拷贝
+     */
+    public static void sendErrorResponse(ChannelHandlerContext ctx, DapengMeshCode code, RequestContext context, HttpResponseStatus status) {
+        writeErrorResponse(ctx, code, context, status, context == null || context.request() == null);
+    }
+
+    /**
+     * 返回网关错误码, 并关闭连接
+     */
+    public static void sendErrorResponseAndClose(ChannelHandlerContext ctx, DapengMeshCode code, RequestContext context, HttpResponseStatus status) {
+        writeErrorResponse(ctx, code, context, status, true);
+    }
+
+    private static void writeErrorResponse(ChannelHandlerContext ctx, DapengMeshCode code, RequestContext context, HttpResponseStatus status, boolean close) {
+        if (context == null || !context.warmUp()) {
+            GatewayMetrics.recordMeshCode(code);
+        }
+        HttpResponseEntity error = ERRORS[code.ordinal()];
+        writeResponse(ctx, error.bytes(), error.body().retainedDuplicate(), context, status, close);
+    }
+
     public static String wrapErrorResponse(DapengMeshCode code) {
         return wrapErrorResponse(null, code);
     }
 
+    /**
+     * 预先编码的错误响应(http 200), 记录指标
+     */
+    static HttpResponseEntity errorEntity(DapengMeshCode code) {
+        GatewayMetrics.recordMeshCode(code);
+        return ERRORS[code.ordinal()];
+    }
+
 
     public static String wrapExCodeResponse(SoaException ex) {
         return wrapExCodeResponse(null, ex);
@@ -80,8 +175,11 @@ public class HttpProcessorUtils {
      * @return
      */
     public static String wrapErrorResponse(String url, DapengMeshCode code) {
-        String resp = String.format("{\"responseCode\":\"%s\", \"responseMsg\":\"%s\", \"success\":\"%s\", \"status\":0}", code.getCode(), code.getMsg(), "{}");
-        logger.info("mesh-response: url: {}, info: {}", url, resp);
+        GatewayMetrics.recordMeshCode(code);
+        String resp = JsonEnvelope.error(code);
+        if (logger.isDebugEnabled()) {
+            logger.debug("mesh-response: url: {}, info: {}", url, resp);
+        }
         return resp;
     }
 
@@ -92,8 +190,10 @@ public class HttpProcessorUtils {
      * @return
      */
     public static String wrapExCodeResponse(String url, SoaException ex) {
-        String resp = String.format("{\"responseCode\":\"%s\", \"responseMsg\":\"%s\", \"success\":\"%s\", \"status\":0}", ex.getCode(), ex.getMsg(), "{}");
-        logger.info("mesh-response: url: {}, info: {}", url, resp);
+        String resp = JsonEnvelope.error(ex.getCode(), ex.getMsg());
+        if (logger.isDebugEnabled()) {
+            logger.debug("mesh-response: url: {}, info: {}", url, resp);
+        }
         return resp;
     }
 
@@ -101,8 +201,10 @@ public class HttpProcessorUtils {
      * wrap message response for json format.
      */
     public static String wrapResponse(String url, Object msg) {
-        String resp = String.format("{\"responseCode\":\"%s\", \"responseMsg\":\"%s\", \"success\":\"%s\", \"status\":1}", "0000", msg, "{}");
-        logger.debug("mesh-response: url: {}, info: {}", url, resp);
+        String resp = JsonEnvelope.success(msg);
+        if (logger.isDebugEnabled()) {
+            logger.debug("mesh-response: url: {}, info: {}", url, resp);
+        }
         return resp;
     }
 
@@ -114,8 +216,8 @@ public class HttpProcessorUtils {
         return msg.toString();
     }
 
-    public static AtomicInteger getRequestCounter() {
-        return requestCounter;
+    public static InFlightTracker getInFlightTracker() {
+        return inFlightTracker;
     }
 
 }
@@ -1,6 +1,9 @@
 package com.github.dapeng.gateway.http;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.util.CharsetUtil;
 
 /**
  * @author maple 2018.08.28 下午4:23
@@ -9,11 +12,28 @@ public class HttpResponseEntity {
     private String content;
     private HttpResponseStatus status;
 
+    /**
+     * 预编码的报文, 普通响应为空
+     */
+    private byte[] bytes;
+    private ByteBuf body;
+
     public HttpResponseEntity(String content, HttpResponseStatus status) {
         this.content = content;
         this.status = status;
     }
 
+    /**
+     * 预先编码成只读 ByteBuf, 可缓存后重复发送, 每次发送取 retainedDuplicate, 不再编码和拷贝
+     */
+    public static HttpResponseEntity preEncoded(String content, HttpResponseStatus status) {
+        HttpResponseEntity entity = new HttpResponseEntity(content, status);
+        entity.bytes = content.getBytes(CharsetUtil.UTF_8);
+        // 不可释放: 缓存失效后由 GC 回收, 不会因为并发发送中的引用计数出错
+        entity.body = Unpooled.unreleasableBuffer(Unpooled.wrappedBuffer(entity.bytes).asReadOnly());
+        return entity;
+    }
+
     public String getContent() {
         return content;
     }
@@ -21,4 +41,12 @@ public class HttpResponseEntity {
     public HttpResponseStatus getStatus() {
         return status;
     }
+
+    byte[] bytes() {
+        return bytes;
+    }
+
+    ByteBuf body() {
+        return body;
+    }
 }
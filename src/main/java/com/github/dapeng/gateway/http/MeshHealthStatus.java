@@ -10,6 +10,10 @@ public enum MeshHealthStatus {
      * 不健康的运行状态
      */
     YELLOW(500),
+    /**
+     * 启动预热中, 尚未准备好接收流量
+     */
+    WARMING(503),
     /**
      * 正常运行状态
      */
@@ -25,6 +29,8 @@ public enum MeshHealthStatus {
         switch (value) {
             case 500:
                 return YELLOW;
+            case 503:
+                return WARMING;
 
             case 200:
                 return GREEN;
@@ -0,0 +1,135 @@
+package com.github.dapeng.gateway.http;
+
+import com.github.dapeng.gateway.auth.WhiteListHandler;
+import com.github.dapeng.gateway.util.Constants;
+import com.github.dapeng.gateway.util.JsonEnvelope;
+import com.github.dapeng.json.OptimizedMetadata;
+import com.github.dapeng.openapi.cache.ServiceCache;
+import io.netty.handler.codec.http.HttpResponseStatus;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link Constants#SERVICE_LIST} 的缓存.
+ * <p>
+ * 只列出 {@link WhiteListHandler#listed(String)} 的服务, 排序后保存, 完整列表预编码成 {@link HttpResponseEntity#preEncoded(String, HttpResponseStatus)};
+ * 白名单热加载、元数据预热完成时由 {@link #invalidate()} 失效. zookeeper 运行中增删服务或版本、替换元数据时不经过网关,
+ * 所以每次访问还比对 {@link ServiceCache} 的指纹(服务数 + 各元数据对象的 identityHashCode), 变化后重建;
+ * 比对只遍历一次服务表, 开销远小于生成一页响应.
+ *
+ * @author agent 2026.10.19
+ */
+public final class ServiceListCache {
+    /**
+     * 分页时单页最大条数
+     */
+    static final int MAX_PAGE_SIZE = 1000;
+
+    private static volatile Snapshot snapshot;
+    /**
+     * 每次失效加一, 快照记录重建前的值, 不相等时重建; 重建期间发生的失效不会被覆盖
+     */
+    private static final AtomicLong GENERATION = new AtomicLong();
+
+    private ServiceListCache() {
+    }
+
+    /**
+     * 服务元数据变化后调用
+     */
+    public static void invalidate() {
+        GENERATION.incrementAndGet();
+    }
+
+    /**
+     * 完整列表
+     */
+    static HttpResponseEntity all() {
+        return current().all;
+    }
+
+    /**
+     * 过滤并分页
+     *
+     * @param filter 服务名包含的字符串, 为空时不过滤
+     * @param offset 起始位置
+     * @param limit  条数, 不超过 {@link #MAX_PAGE_SIZE}
+     */
+    static HttpResponseEntity page(String filter, int offset, int limit) {
+        String[] services = current().services;
+        offset = Math.max(offset, 0);
+        limit = Math.min(Math.max(limit, 0), MAX_PAGE_SIZE);
+
+        StringBuilder page = new StringBuilder(Math.min(limit, services.length) * 64 + 128);
+        page.append("{\"responseCode\":\"0000\", \"responseMsg\":\"[");
+        int total = 0;
+        int written = 0;
+        for (String service : services) {
+            if (filter != null && !filter.isEmpty() && !service.contains(filter)) {
+                continue;
+            }
+            if (total >= offset && written < limit) {
+                if (written > 0) {
+                    page.append(", ");
+                }
+                JsonEnvelope.escape(page, service);
+                written++;
+            }
+            total++;
+        }
+        page.append("]\", \"success\":\"{}\", \"status\":1, \"total\":").append(total).append('}');
+        return new HttpResponseEntity(page.toString(), HttpResponseStatus.OK);
+    }
+
+    private static Snapshot current() {
+        Snapshot current = snapshot;
+        long generation = GENERATION.get();
+        Map<String, OptimizedMetadata.OptimizedService> services = ServiceCache.getServices();
+        long fingerprint = fingerprint(services);
+        if (current == null || current.generation != generation || current.fingerprint != fingerprint) {
+            // 并发重建的结果相同, 谁写入都可以
+            current = new Snapshot(services, generation, fingerprint);
+            snapshot = current;
+        }
+        return current;
+    }
+
+    private static long fingerprint(Map<String, OptimizedMetadata.OptimizedService> services) {
+        long fingerprint = services.size();
+        for (OptimizedMetadata.OptimizedService service : services.values()) {
+            fingerprint = fingerprint * 31 + System.identityHashCode(service);
+        }
+        return fingerprint;
+    }
+
+    private static final class Snapshot {
+        private final String[] services;
+        private final HttpResponseEntity all;
+        private final long generation;
+        private final long fingerprint;
+
+        private Snapshot(Map<String, OptimizedMetadata.OptimizedService> services, long generation, long fingerprint) {
+            String[] names = new String[services.size()];
+            int i = 0;
+            for (OptimizedMetadata.OptimizedService v : services.values()) {
+                String name = v.getService().namespace + "." + v.getService().name;
+                if (!WhiteListHandler.listed(name)) {
+                    continue;
+                }
+                if (i == names.length) {
+                    names = Arrays.copyOf(names, i + 16);
+                }
+                names[i++] = name + ":" + v.getService().meta.version;
+            }
+            names = Arrays.copyOf(names, i);
+            Arrays.sort(names);
+
+            this.services = names;
+            this.all = HttpResponseEntity.preEncoded(HttpProcessorUtils.wrapResponse(Constants.SERVICE_LIST, Arrays.asList(names)), HttpResponseStatus.OK);
+            this.generation = generation;
+            this.fingerprint = fingerprint;
+        }
+    }
+}
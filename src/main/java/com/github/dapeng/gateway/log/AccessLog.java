@@ -0,0 +1,206 @@
+package com.github.dapeng.gateway.log;
+
+import com.github.dapeng.gateway.netty.request.RequestContext;
+import com.github.dapeng.gateway.util.SysEnvUtil;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 网关访问日志.
+ * <p>
+ * 每个请求写一条定长二进制记录到无锁环形缓冲区, 由后台线程批量落盘, 请求线程不做任何格式化和文件 IO.
+ * 响应内容按 {@link SysEnvUtil#ACCESS_LOG_SAMPLE_RATE} 采样, 最多截取 {@link SysEnvUtil#ACCESS_LOG_PAYLOAD_MAX} 字节.
+ * 日志文件可通过 {@link AccessLogReader} 转为文本.
+ * <p>
+ * 记录格式(大端):
+ * <pre>
+ *  0  long   记录时间(epoch millis)
+ *  8  int    耗时(微秒), 未知时为 -1
+ * 12  short  http status
+ * 14  byte   响应 status 字段: 1 成功, 0 失败, -1 未知
+ * 15  byte   url 长度
+ * 16  16B    responseCode(ascii, 不足补 0)
+ * 32  int    响应字节数
+ * 36  short  采样的响应内容长度
+ * 40  128B   url
+ * 168 ...    采样的响应内容
+ * </pre>
+ *
+ * @author agent 2026.10.19
+ */
+public final class AccessLog {
+    private static final Logger logger = LoggerFactory.getLogger(AccessLog.class);
+
+    static final int TIMESTAMP_OFFSET = 0;
+    static final int COST_OFFSET = 8;
+    static final int HTTP_STATUS_OFFSET = 12;
+    static final int MESH_STATUS_OFFSET = 14;
+    static final int URL_LENGTH_OFFSET = 15;
+    static final int RESPONSE_CODE_OFFSET = 16;
+    static final int RESPONSE_CODE_MAX = 16;
+    static final int RESPONSE_BYTES_OFFSET = 32;
+    static final int PAYLOAD_LENGTH_OFFSET = 36;
+    static final int URL_OFFSET = 40;
+    static final int URL_MAX = 128;
+    static final int PAYLOAD_OFFSET = URL_OFFSET + URL_MAX;
+
+    private static final byte[] RESPONSE_CODE_KEY = "\"responseCode\":\"".getBytes();
+    private static final byte[] NORMAL_RESPONSE_CODE = "0000".getBytes();
+
+    private static final boolean ENABLE = Boolean.parseBoolean(SysEnvUtil.ACCESS_LOG_ENABLE);
+    private static final int SAMPLE_RATE = Integer.parseInt(SysEnvUtil.ACCESS_LOG_SAMPLE_RATE);
+    private static final int PAYLOAD_MAX = Math.min(Integer.parseInt(SysEnvUtil.ACCESS_LOG_PAYLOAD_MAX), Short.MAX_VALUE);
+
+    private static final AccessLogRingBuffer RING_BUFFER;
+    private static final AccessLogWriter WRITER;
+
+    static {
+        if (ENABLE) {
+            int recordSize = (PAYLOAD_OFFSET + PAYLOAD_MAX + 7) & ~7;
+            RING_BUFFER = new AccessLogRingBuffer(Integer.parseInt(SysEnvUtil.ACCESS_LOG_BUFFER_SIZE), recordSize);
+            WRITER = new AccessLogWriter(RING_BUFFER, new File(SysEnvUtil.ACCESS_LOG_DIR), 256, Integer.parseInt(SysEnvUtil.ACCESS_LOG_MAX_HISTORY));
+            WRITER.start();
+            logger.info("access log enabled, dir: {}, record size: {}, sample rate: 1/{}", SysEnvUtil.ACCESS_LOG_DIR, recordSize, SAMPLE_RATE);
+        } else {
+            RING_BUFFER = null;
+            WRITER = null;
+        }
+    }
+
+    private AccessLog() {
+    }
+
+    /**
+     * 记录一次响应, 缓冲区满时丢弃
+     *
+     * @param context 请求上下文, 可能为空
+     * @param status  http status
+     * @param content 已编码的响应内容
+     */
+    public static void log(RequestContext context, HttpResponseStatus status, byte[] content) {
+        if (!ENABLE) {
+            return;
+        }
+        long sequence = RING_BUFFER.claim();
+        if (sequence < 0) {
+            return;
+        }
+        ByteBuffer buffer = RING_BUFFER.buffer();
+        int offset = RING_BUFFER.offset(sequence);
+        try {
+            long cost = context != null && context.receiveNanos() > 0
+                    ? TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - context.receiveNanos()) : -1;
+            byte meshStatus = meshStatus(content);
+
+            buffer.putLong(offset + TIMESTAMP_OFFSET, System.currentTimeMillis());
+            buffer.putInt(offset + COST_OFFSET, (int) Math.min(cost, Integer.MAX_VALUE));
+            buffer.putShort(offset + HTTP_STATUS_OFFSET, (short) status.code());
+            buffer.put(offset + MESH_STATUS_OFFSET, meshStatus);
+
+            int urlLength = context == null ? 0 : putAscii(buffer, offset + URL_OFFSET, context.requestUrl(), URL_MAX);
+            buffer.put(offset + URL_LENGTH_OFFSET, (byte) urlLength);
+
+            putResponseCode(buffer, offset + RESPONSE_CODE_OFFSET, content, meshStatus);
+            buffer.putInt(offset + RESPONSE_BYTES_OFFSET, content.length);
+
+            int payloadLength = 0;
+            if (SAMPLE_RATE > 0 && ThreadLocalRandom.current().nextInt(SAMPLE_RATE) == 0) {
+                payloadLength = Math.min(content.length, PAYLOAD_MAX);
+                for (int i = 0; i < payloadLength; i++) {
+                    buffer.put(offset + PAYLOAD_OFFSET + i, content[i]);
+                }
+            }
+            buffer.putShort(offset + PAYLOAD_LENGTH_OFFSET, (short) payloadLength);
+        } finally {
+            // 无论如何都要发布, 否则写盘线程会停在该槽位
+            RING_BUFFER.publish(sequence);
+        }
+    }
+
+    /**
+     * 因缓冲区满而丢弃的记录数
+     */
+    public static long dropped() {
+        return ENABLE ? RING_BUFFER.dropped() : 0;
+    }
+
+    /**
+     * 停止写盘线程并刷盘, 网关关闭时调用
+     */
+    public static void shutdown() {
+        if (ENABLE) {
+            WRITER.shutdown(TimeUnit.SECONDS.toMillis(5));
+            logger.info("access log closed, dropped records: {}", RING_BUFFER.dropped());
+        }
+    }
+
+    /**
+     * 网关响应统一以 "status":1} 或 "status":0} 结尾
+     */
+    private static byte meshStatus(byte[] content) {
+        int length = content.length;
+        if (length >= 2 && content[length - 1] == '}') {
+            if (content[length - 2] == '1') {
+                return 1;
+            }
+            if (content[length - 2] == '0') {
+                return 0;
+            }
+        }
+        return -1;
+    }
+
+    private static void putResponseCode(ByteBuffer buffer, int offset, byte[] content, byte meshStatus) {
+        int length = 0;
+        if (meshStatus == 1) {
+            for (; length < NORMAL_RESPONSE_CODE.length; length++) {
+                buffer.put(offset + length, NORMAL_RESPONSE_CODE[length]);
+            }
+        } else if (meshStatus == 0) {
+            int start = indexOf(content, RESPONSE_CODE_KEY);
+            if (start >= 0) {
+                for (int i = start; i < content.length && content[i] != '"' && length < RESPONSE_CODE_MAX; i++, length++) {
+                    buffer.put(offset + length, content[i]);
+                }
+            }
+        }
+        for (; length < RESPONSE_CODE_MAX; length++) {
+            buffer.put(offset + length, (byte) 0);
+        }
+    }
+
+    /**
+     * 只在响应头部查找, 返回 key 之后的下标
+     */
+    private static int indexOf(byte[] content, byte[] key) {
+        int limit = Math.min(content.length, 64) - key.length;
+        outer:
+        for (int i = 0; i <= limit; i++) {
+            for (int j = 0; j < key.length; j++) {
+                if (content[i + j] != key[j]) {
+                    continue outer;
+                }
+            }
+            return i + key.length;
+        }
+        return -1;
+    }
+
+    private static int putAscii(ByteBuffer buffer, int offset, String value, int max) {
+        if (value == null) {
+            return 0;
+        }
+        int length = Math.min(value.length(), max);
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            buffer.put(offset + i, c < 0x80 ? (byte) c : (byte) '?');
+        }
+        return length;
+    }
+}
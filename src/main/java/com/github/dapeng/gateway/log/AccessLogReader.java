@@ -0,0 +1,81 @@
+package com.github.dapeng.gateway.log;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.function.BiConsumer;
+
+import static com.github.dapeng.gateway.log.AccessLog.*;
+
+/**
+ * 把二进制访问日志转换为文本, 每条记录一行.
+ * <pre>
+ * java -cp dapeng-mesh-jar-with-dependencies.jar com.github.dapeng.gateway.log.AccessLogReader logs/access-dapeng-mesh.2018-09-18.bin
+ * </pre>
+ *
+ * @author agent 2026.10.19
+ */
+public class AccessLogReader {
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("MM-dd HH:mm:ss SSS").withZone(ZoneId.systemDefault());
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("usage: AccessLogReader <access-log-file>...");
+            return;
+        }
+        for (String file : args) {
+            dump(file);
+        }
+    }
+
+    private static void dump(String file) throws IOException {
+        StringBuilder line = new StringBuilder(256);
+        read(file, (record, buffer) -> {
+            line.setLength(0);
+            int cost = buffer.getInt(COST_OFFSET);
+            int urlLength = buffer.get(URL_LENGTH_OFFSET) & 0xff;
+            int codeLength = 0;
+            while (codeLength < RESPONSE_CODE_MAX && record[RESPONSE_CODE_OFFSET + codeLength] != 0) {
+                codeLength++;
+            }
+            int payloadLength = buffer.getShort(PAYLOAD_LENGTH_OFFSET);
+
+            line.append(FORMATTER.format(Instant.ofEpochMilli(buffer.getLong(TIMESTAMP_OFFSET))))
+                    .append(' ').append(buffer.getShort(HTTP_STATUS_OFFSET))
+                    .append(" status:").append(buffer.get(MESH_STATUS_OFFSET))
+                    .append(" code:").append(new String(record, RESPONSE_CODE_OFFSET, codeLength, StandardCharsets.US_ASCII))
+                    .append(" cost:").append(cost < 0 ? "-" : cost / 1000.0 + "ms")
+                    .append(" bytes:").append(buffer.getInt(RESPONSE_BYTES_OFFSET))
+                    .append(" url:").append(new String(record, URL_OFFSET, urlLength, StandardCharsets.US_ASCII));
+            if (payloadLength > 0) {
+                line.append(" payload:").append(new String(record, PAYLOAD_OFFSET, payloadLength, StandardCharsets.UTF_8));
+            }
+            System.out.println(line);
+        });
+    }
+
+    private static void read(String file, BiConsumer<byte[], ByteBuffer> visitor) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024))) {
+            if (in.readInt() != AccessLogWriter.FILE_MAGIC) {
+                throw new IOException("not a dapeng-mesh access log: " + file);
+            }
+            byte[] record = new byte[in.readInt()];
+            ByteBuffer buffer = ByteBuffer.wrap(record);
+            for (; ; ) {
+                try {
+                    in.readFully(record);
+                } catch (EOFException e) {
+                    break;
+                }
+                visitor.accept(record, buffer);
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.github.dapeng.gateway.log;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 多生产者、单消费者的定长记录环形缓冲区.
+ * <p>
+ * 请求线程通过 CAS 抢占槽位, 用绝对下标写入记录后发布; 写盘线程按序号顺序消费.
+ * 缓冲区满时直接丢弃并计数, 永远不阻塞请求线程.
+ *
+ * @author agent 2026.10.19
+ */
+final class AccessLogRingBuffer {
+    private final int capacity;
+    private final int mask;
+    private final int recordSize;
+
+    private final ByteBuffer buffer;
+    /**
+     * 槽位发布标记, 值为 sequence + 1 时表示该槽位记录已写完
+     */
+    private final AtomicLongArray published;
+
+    private final AtomicLong producerSequence = new AtomicLong(0);
+    private volatile long consumerSequence = 0;
+
+    private final AtomicLong dropped = new AtomicLong(0);
+
+    /**
+     * 仅供消费线程使用的视图, 避免修改共享 buffer 的 position
+     */
+    private final ByteBuffer consumerView;
+
+    AccessLogRingBuffer(int capacity, int recordSize) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+        }
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.recordSize = recordSize;
+        this.buffer = ByteBuffer.allocateDirect(capacity * recordSize);
+        this.published = new AtomicLongArray(capacity);
+        this.consumerView = buffer.duplicate();
+    }
+
+    /**
+     * 抢占一个槽位
+     *
+     * @return 槽位序号, 缓冲区满时返回 -1
+     */
+    long claim() {
+        for (; ; ) {
+            long current = producerSequence.get();
+            if (current - consumerSequence >= capacity) {
+                dropped.incrementAndGet();
+                return -1;
+            }
+            if (producerSequence.compareAndSet(current, current + 1)) {
+                return current;
+            }
+        }
+    }
+
+    /**
+     * 槽位在共享 buffer 中的起始下标, 写入方只能使用绝对下标读写
+     */
+    int offset(long sequence) {
+        return (int) (sequence & mask) * recordSize;
+    }
+
+    ByteBuffer buffer() {
+        return buffer;
+    }
+
+    void publish(long sequence) {
+        published.lazySet((int) (sequence & mask), sequence + 1);
+    }
+
+    /**
+     * 把下一条已发布的记录拷贝到 dst, 只允许写盘线程调用
+     *
+     * @return 没有可消费记录时返回 false
+     */
+    boolean poll(ByteBuffer dst) {
+        long sequence = consumerSequence;
+        int slot = (int) (sequence & mask);
+        if (published.get(slot) != sequence + 1) {
+            return false;
+        }
+        int offset = slot * recordSize;
+        consumerView.limit(offset + recordSize).position(offset);
+        dst.put(consumerView);
+        consumerView.clear();
+        consumerSequence = sequence + 1;
+        return true;
+    }
+
+    boolean isEmpty() {
+        return consumerSequence == producerSequence.get();
+    }
+
+    int recordSize() {
+        return recordSize;
+    }
+
+    long dropped() {
+        return dropped.get();
+    }
+}
@@ -0,0 +1,181 @@
+package com.github.dapeng.gateway.log;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 后台写盘线程: 从 {@link AccessLogRingBuffer} 批量取出记录, 按天滚动写入二进制文件, 滚动时删除超过保留天数的文件
+ *
+ * @author agent 2026.10.19
+ */
+final class AccessLogWriter implements Runnable {
+    private static final Logger logger = LoggerFactory.getLogger(AccessLogWriter.class);
+
+    static final int FILE_MAGIC = 0x444D414C;
+    static final String FILE_PREFIX = "access-dapeng-mesh.";
+    static final String FILE_SUFFIX = ".bin";
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final AccessLogRingBuffer ringBuffer;
+    private final File directory;
+    private final ByteBuffer batch;
+    /**
+     * 保留天数(含当天), 0 表示不删除
+     */
+    private final int maxHistory;
+
+    private volatile boolean running = true;
+    private Thread thread;
+
+    private FileChannel channel;
+    private long nextRollMillis;
+
+    AccessLogWriter(AccessLogRingBuffer ringBuffer, File directory, int batchRecords, int maxHistory) {
+        this.ringBuffer = ringBuffer;
+        this.directory = directory;
+        this.batch = ByteBuffer.allocateDirect(ringBuffer.recordSize() * batchRecords);
+        this.maxHistory = maxHistory;
+    }
+
+    void start() {
+        thread = new Thread(this, "dapeng-mesh-access-log-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 停止写盘线程, 已进入缓冲区的记录会全部落盘
+     */
+    void shutdown(long timeoutMillis) {
+        running = false;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join(timeoutMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        while (running || !ringBuffer.isEmpty()) {
+            boolean drained = false;
+            while (batch.remaining() >= ringBuffer.recordSize() && ringBuffer.poll(batch)) {
+                drained = true;
+            }
+            if (batch.position() > 0 && (!drained || batch.remaining() < ringBuffer.recordSize())) {
+                flush();
+            }
+            if (!drained) {
+                if (!running) {
+                    // 已抢占但尚未发布的槽位, 稍等生产者写完
+                    Thread.yield();
+                } else {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            }
+        }
+        flush();
+        closeQuietly();
+    }
+
+    private void flush() {
+        if (batch.position() == 0) {
+            return;
+        }
+        batch.flip();
+        try {
+            FileChannel ch = currentChannel();
+            while (batch.hasRemaining()) {
+                ch.write(batch);
+            }
+        } catch (IOException e) {
+            logger.error("access log write failed, drop " + batch.remaining() / ringBuffer.recordSize() + " records: " + e.getMessage(), e);
+            closeQuietly();
+        } finally {
+            batch.clear();
+        }
+    }
+
+    private FileChannel currentChannel() throws IOException {
+        long now = System.currentTimeMillis();
+        if (channel != null && now < nextRollMillis) {
+            return channel;
+        }
+        closeQuietly();
+
+        LocalDate today = LocalDate.now();
+        nextRollMillis = today.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("can not create access log directory: " + directory);
+        }
+        deleteExpired(today);
+        File file = new File(directory, FILE_PREFIX + today + FILE_SUFFIX);
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        if (channel.size() == 0) {
+            ByteBuffer header = ByteBuffer.allocate(8);
+            header.putInt(FILE_MAGIC).putInt(ringBuffer.recordSize()).flip();
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+        }
+        logger.info("access log file: {}", file.getAbsolutePath());
+        return channel;
+    }
+
+    /**
+     * 删除日期早于 today - maxHistory + 1 的日志文件, 文件名不是日期的不处理
+     */
+    void deleteExpired(LocalDate today) {
+        if (maxHistory <= 0) {
+            return;
+        }
+        LocalDate oldest = today.minusDays(maxHistory - 1);
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX));
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            LocalDate date;
+            try {
+                date = LocalDate.parse(name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+            } catch (DateTimeParseException e) {
+                continue;
+            }
+            if (date.isBefore(oldest)) {
+                if (file.delete()) {
+                    logger.info("delete expired access log file: {}", file.getAbsolutePath());
+                } else {
+                    logger.warn("can not delete expired access log file: {}", file.getAbsolutePath());
+                }
+            }
+        }
+    }
+
+    private void closeQuietly() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.error(e.getMessage(), e);
+            }
+            channel = null;
+        }
+    }
+}
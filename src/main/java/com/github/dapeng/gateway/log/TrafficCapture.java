@@ -0,0 +1,274 @@
+package com.github.dapeng.gateway.log;
+
+import com.github.dapeng.gateway.metrics.GatewayMetrics;
+import com.github.dapeng.gateway.util.SysEnvUtil;
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 请求录制.
+ * <p>
+ * 按 {@link SysEnvUtil#CAPTURE_SAMPLE_RATE} 采样, 把请求行、请求头、请求体及到达时间写入内存映射文件,
+ * 用 {@link TrafficReplay} 按原来的节奏回放. 请求线程用一次 CAS 在当前文件中占位后直接写入映射内存, 没有锁和系统调用;
+ * 文件写满后由后台线程换新文件并删除超出保留数的旧文件, 换文件期间的请求不录制.
+ * 进程退出后已写入映射内存的数据仍会由操作系统落盘.
+ * <p>
+ * 与 /metrics/slow 一样不落盘凭证: Cookie、Authorization 请求头以及 url 参数和表单中的 secret、secret2 的值替换为 {@link #REDACTED},
+ * 回放时目标网关需关闭鉴权.
+ * <p>
+ * 文件以 magic(int) 开头, 之后每条记录(大端):
+ * <pre>
+ *  0  int    记录长度, 最后写入, 为 0 表示之后没有完整记录
+ *  4  long   到达时间(epoch millis)
+ * 12  int    请求行及请求头长度
+ * 16  ...    "METHOD URI\r\n" 及 "name: value\r\n"(utf-8)
+ *  .  ...    请求体
+ * </pre>
+ *
+ * @author agent 2026.10.19
+ */
+public final class TrafficCapture {
+    private static final Logger logger = LoggerFactory.getLogger(TrafficCapture.class);
+
+    static final int FILE_MAGIC = 0x444D5452;
+    static final int FILE_HEADER = 4;
+    static final int RECORD_HEADER = 16;
+    static final String FILE_PREFIX = "capture-dapeng-mesh.";
+    static final String FILE_SUFFIX = ".bin";
+    static final String REDACTED = "***";
+
+    private static final boolean ENABLE = Boolean.parseBoolean(SysEnvUtil.CAPTURE_ENABLE);
+    private static final int SAMPLE_RATE = Math.max(Integer.parseInt(SysEnvUtil.CAPTURE_SAMPLE_RATE), 1);
+    private static final int SEGMENT_SIZE = Integer.parseInt(SysEnvUtil.CAPTURE_SEGMENT_SIZE);
+    private static final int SEGMENTS = Math.max(Integer.parseInt(SysEnvUtil.CAPTURE_SEGMENTS), 1);
+    private static final File DIRECTORY = new File(SysEnvUtil.CAPTURE_DIR);
+
+    private static final LongAdder CAPTURED = new LongAdder();
+    private static final LongAdder DROPPED = new LongAdder();
+
+    private static final AtomicBoolean ROLLING = new AtomicBoolean();
+    private static final ExecutorService ROLLER;
+    private static volatile Segment current;
+    private static long lastSegmentMillis;
+
+    static {
+        if (ENABLE) {
+            ROLLER = Executors.newSingleThreadExecutor(new DefaultThreadFactory("dapeng-mesh-capture-roller", true));
+            current = newSegment();
+            GatewayMetrics.counter("dapeng_mesh_capture_requests_total", "Requests recorded by traffic capture", CAPTURED::sum);
+            GatewayMetrics.counter("dapeng_mesh_capture_dropped_total", "Sampled requests not recorded while rolling or too large", DROPPED::sum);
+            logger.info("traffic capture enabled, dir: {}, sample rate: 1/{}, segment size: {}", DIRECTORY.getAbsolutePath(), SAMPLE_RATE, SEGMENT_SIZE);
+        } else {
+            ROLLER = null;
+        }
+    }
+
+    private TrafficCapture() {
+    }
+
+    /**
+     * 采样录制一个请求, 由 {@link com.github.dapeng.gateway.netty.handler.HttpRequestHandler} 调用
+     */
+    public static void capture(FullHttpRequest request) {
+        if (!ENABLE || ThreadLocalRandom.current().nextInt(SAMPLE_RATE) != 0) {
+            return;
+        }
+        Segment segment = current;
+        byte[] head = head(request);
+        ByteBuf content = request.content();
+        byte[] body = body(request);
+        int length = RECORD_HEADER + head.length + (body == null ? content.readableBytes() : body.length);
+        long position = segment == null ? -1 : segment.claim(length);
+        if (position < 0) {
+            DROPPED.increment();
+            if (segment != null && length <= SEGMENT_SIZE - FILE_HEADER) {
+                roll(segment);
+            }
+            return;
+        }
+        int offset = (int) position;
+        ByteBuffer buffer = segment.buffer.duplicate();
+        buffer.limit(offset + length).position(offset + 4);
+        buffer.putLong(System.currentTimeMillis()).putInt(head.length).put(head);
+        if (body == null) {
+            content.getBytes(content.readerIndex(), buffer);
+        } else {
+            buffer.put(body);
+        }
+        // 长度最后写入, 读取时遇到 0 即停止
+        segment.buffer.putInt(offset, length);
+        CAPTURED.increment();
+    }
+
+    private static byte[] head(FullHttpRequest request) {
+        StringBuilder head = new StringBuilder(256);
+        String uri = request.uri();
+        int query = uri.indexOf('?');
+        head.append(request.method().name()).append(' ')
+                .append(query < 0 ? uri : uri.substring(0, query + 1) + redactQuery(uri.substring(query + 1))).append("\r\n");
+        for (Map.Entry<String, String> header : request.headers()) {
+            String name = header.getKey();
+            boolean secret = HttpHeaderNames.COOKIE.contentEqualsIgnoreCase(name)
+                    || HttpHeaderNames.AUTHORIZATION.contentEqualsIgnoreCase(name)
+                    || HttpHeaderNames.PROXY_AUTHORIZATION.contentEqualsIgnoreCase(name);
+            head.append(name).append(": ").append(secret ? REDACTED : header.getValue()).append("\r\n");
+        }
+        return head.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 表单请求体中有 secret 时返回替换后的请求体, 否则返回 null, 直接复制原请求体
+     */
+    private static byte[] body(FullHttpRequest request) {
+        String contentType = request.headers().get(HttpHeaderNames.CONTENT_TYPE);
+        if (contentType == null || !contentType.regionMatches(true, 0, "application/x-www-form-urlencoded", 0, 33)) {
+            return null;
+        }
+        String body = request.content().toString(StandardCharsets.UTF_8);
+        String redacted = redactQuery(body);
+        return redacted == body ? null : redacted.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 替换 secret、secret2 参数的值
+     *
+     * @return 没有需要替换的参数时返回原字符串
+     */
+    static String redactQuery(String query) {
+        StringBuilder redacted = null;
+        // 已经复制到 redacted 的位置
+        int copied = 0;
+        int start = 0;
+        while (start < query.length()) {
+            int end = query.indexOf('&', start);
+            if (end < 0) {
+                end = query.length();
+            }
+            int equals = query.indexOf('=', start);
+            if (equals > start && equals < end && isSecret(query, start, equals)) {
+                if (redacted == null) {
+                    redacted = new StringBuilder(query.length());
+                }
+                redacted.append(query, copied, equals + 1).append(REDACTED);
+                copied = end;
+            }
+            start = end + 1;
+        }
+        return redacted == null ? query : redacted.append(query, copied, query.length()).toString();
+    }
+
+    private static boolean isSecret(String query, int start, int end) {
+        int length = end - start;
+        return (length == 6 || length == 7 && query.charAt(end - 1) == '2') && query.startsWith("secret", start);
+    }
+
+    private static void roll(Segment full) {
+        if (!ROLLING.compareAndSet(false, true)) {
+            return;
+        }
+        ROLLER.execute(() -> {
+            try {
+                if (current == full) {
+                    current = newSegment();
+                    deleteOldSegments();
+                }
+            } finally {
+                ROLLING.set(false);
+            }
+        });
+    }
+
+    /**
+     * @return 创建失败时返回 null, 不再录制
+     */
+    private static Segment newSegment() {
+        try {
+            if (!DIRECTORY.exists() && !DIRECTORY.mkdirs()) {
+                throw new IOException("can not create capture directory: " + DIRECTORY);
+            }
+            // 文件名按创建时间排序
+            long millis = Math.max(System.currentTimeMillis(), lastSegmentMillis + 1);
+            lastSegmentMillis = millis;
+            File file = new File(DIRECTORY, FILE_PREFIX + millis + FILE_SUFFIX);
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_SIZE);
+                buffer.putInt(0, FILE_MAGIC);
+                logger.info("traffic capture file: {}", file.getAbsolutePath());
+                return new Segment(buffer);
+            }
+        } catch (IOException e) {
+            logger.error("create traffic capture file failed, capture stopped: " + e.getMessage(), e);
+            return null;
+        }
+    }
+
+    private static void deleteOldSegments() {
+        File[] files = segmentFiles(DIRECTORY);
+        for (int i = 0; i < files.length - SEGMENTS; i++) {
+            if (!files[i].delete()) {
+                logger.warn("delete traffic capture file failed: {}", files[i]);
+            }
+        }
+    }
+
+    /**
+     * 目录下的录制文件, 按创建时间排序
+     */
+    static File[] segmentFiles(File directory) {
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX));
+        if (files == null) {
+            return new File[0];
+        }
+        Arrays.sort(files, (a, b) -> Long.compare(segmentMillis(a), segmentMillis(b)));
+        return files;
+    }
+
+    private static long segmentMillis(File file) {
+        String name = file.getName();
+        try {
+            return Long.parseLong(name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static final class Segment {
+        final MappedByteBuffer buffer;
+        /**
+         * 下一条记录的位置, 超过文件大小后不再回退
+         */
+        final AtomicLong position = new AtomicLong(FILE_HEADER);
+
+        Segment(MappedByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        /**
+         * @return 记录位置, 空间不足时返回 -1
+         */
+        long claim(int length) {
+            long position = this.position.getAndAdd(length);
+            return position + length <= buffer.capacity() ? position : -1;
+        }
+    }
+}
@@ -0,0 +1,399 @@
+package com.github.dapeng.gateway.log;
+
+import com.github.dapeng.gateway.metrics.LogHistogram;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.*;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.http.*;
+import io.netty.util.AttributeKey;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.Promise;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.dapeng.gateway.log.TrafficCapture.*;
+
+/**
+ * 回放 {@link TrafficCapture} 录制的请求.
+ * <pre>
+ * java -cp dapeng-mesh-jar-with-dependencies.jar com.github.dapeng.gateway.log.TrafficReplay 127.0.0.1 9000 2 logs/capture
+ * </pre>
+ * 按录制时的到达间隔发送, speed 为倍速(2 表示两倍速率); 请求互不等待, 连接不够时新建连接, 达到上限后排队.
+ * 延迟从 "计划发送时间" 算起, 网关变慢时排队的时间也计入延迟.
+ * 所有状态只在一个 event loop 上读写.
+ * <p>
+ * 录制时已去掉 secret 等凭证, 目标网关需关闭鉴权(soa.open.auth.enable=false).
+ *
+ * @author agent 2026.10.19
+ */
+public class TrafficReplay {
+    private static final AttributeKey<Pending> IN_FLIGHT = AttributeKey.valueOf("replayInFlight");
+
+    private final String host;
+    private final int port;
+    private final double speed;
+    private final int maxConnections;
+    private final Iterator<Record> records;
+
+    private EventLoop loop;
+    private Bootstrap bootstrap;
+    private Promise<Void> finished;
+
+    private final ArrayDeque<Channel> idle = new ArrayDeque<>();
+    private final ArrayDeque<Pending> waiting = new ArrayDeque<>();
+    private int connections;
+    private int inFlight;
+
+    private Record next;
+    private long firstMillis = -1;
+    private long startNanos;
+
+    private final LogHistogram latencyMicros = new LogHistogram();
+    private final Map<Integer, Long> statuses = new TreeMap<>();
+    private long errors;
+
+    public TrafficReplay(String host, int port, double speed, int maxConnections, List<File> files) {
+        this.host = host;
+        this.port = port;
+        this.speed = speed;
+        this.maxConnections = maxConnections;
+        this.records = new RecordIterator(files);
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 4) {
+            System.err.println("usage: TrafficReplay <host> <port> <speed> <capture-file-or-dir>... (-Dreplay.connections=64)");
+            return;
+        }
+        List<File> files = new ArrayList<>();
+        for (int i = 3; i < args.length; i++) {
+            files.addAll(captureFiles(args[i]));
+        }
+        TrafficReplay replay = new TrafficReplay(args[0], Integer.parseInt(args[1]), Double.parseDouble(args[2]),
+                Integer.getInteger("replay.connections", 64), files);
+        long begin = System.nanoTime();
+        replay.run();
+        System.out.println(replay.summary(System.nanoTime() - begin));
+    }
+
+    /**
+     * 读取录制的请求, 用于启动预热; 每条为 {方法, uri, 请求体}, 请求头不保留
+     *
+     * @param path  录制文件或目录
+     * @param limit 最多读取的条数
+     */
+    public static List<String[]> readRequests(String path, int limit) {
+        List<String[]> requests = new ArrayList<>();
+        for (RecordIterator records = new RecordIterator(captureFiles(path)); requests.size() < limit && records.hasNext(); ) {
+            Record record = records.next();
+            String head = new String(record.head, StandardCharsets.UTF_8);
+            int lineEnd = head.indexOf("\r\n");
+            String line = lineEnd < 0 ? head : head.substring(0, lineEnd);
+            int space = line.indexOf(' ');
+            if (space > 0) {
+                requests.add(new String[]{line.substring(0, space), line.substring(space + 1), new String(record.body, StandardCharsets.UTF_8)});
+            }
+        }
+        return requests;
+    }
+
+    private static List<File> captureFiles(String path) {
+        File file = new File(path);
+        return Arrays.asList(file.isDirectory() ? segmentFiles(file) : new File[]{file});
+    }
+
+    public void run() throws InterruptedException {
+        EventLoopGroup group = new NioEventLoopGroup(1, new DefaultThreadFactory("traffic-replay", true));
+        try {
+            loop = group.next();
+            ReplayHandler handler = new ReplayHandler();
+            bootstrap = new Bootstrap()
+                    .group(loop)
+                    .channel(NioSocketChannel.class)
+                    .option(ChannelOption.TCP_NODELAY, Boolean.TRUE)
+                    .handler(new ChannelInitializer<SocketChannel>() {
+                        @Override
+                        protected void initChannel(SocketChannel ch) {
+                            ch.pipeline().addLast(new HttpClientCodec());
+                            ch.pipeline().addLast(new HttpObjectAggregator(16 * 1024 * 1024));
+                            ch.pipeline().addLast(handler);
+                        }
+                    });
+            finished = loop.newPromise();
+            loop.execute(() -> {
+                startNanos = System.nanoTime();
+                pump();
+            });
+            finished.sync();
+            for (Channel channel : idle) {
+                channel.close();
+            }
+        } finally {
+            group.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+        }
+    }
+
+    public String summary(long elapsedNanos) {
+        return String.format("requests: %d, errors: %d, status: %s, elapsed: %.1fs, throughput: %.0f req/s%n"
+                        + "latency(ms) p50: %.3f, p99: %.3f, p999: %.3f, max: %.3f",
+                latencyMicros.count(), errors, statuses, elapsedNanos / 1e9, latencyMicros.count() * 1e9 / elapsedNanos,
+                latencyMicros.valueAtQuantile(0.5) / 1000.0, latencyMicros.valueAtQuantile(0.99) / 1000.0,
+                latencyMicros.valueAtQuantile(0.999) / 1000.0, latencyMicros.valueAtQuantile(1) / 1000.0);
+    }
+
+    /**
+     * 发送所有已到时间的请求, 然后定时到下一个请求的时间
+     */
+    private void pump() {
+        for (; ; ) {
+            if (next == null) {
+                if (!records.hasNext()) {
+                    finishIfDone();
+                    return;
+                }
+                next = records.next();
+                if (firstMillis < 0) {
+                    firstMillis = next.millis;
+                }
+            }
+            long due = startNanos + (long) (TimeUnit.MILLISECONDS.toNanos(next.millis - firstMillis) / speed);
+            long delay = due - System.nanoTime();
+            if (delay > 0) {
+                loop.schedule(this::pump, delay, TimeUnit.NANOSECONDS);
+                return;
+            }
+            submit(new Pending(next.request(host), due));
+            next = null;
+        }
+    }
+
+    private void submit(Pending pending) {
+        inFlight++;
+        Channel channel = idle.pollFirst();
+        if (channel != null) {
+            send(channel, pending);
+        } else if (connections < maxConnections) {
+            connect(pending);
+        } else {
+            waiting.addLast(pending);
+        }
+    }
+
+    private void connect(Pending pending) {
+        connections++;
+        bootstrap.connect(host, port).addListener((ChannelFutureListener) f -> {
+            if (f.isSuccess()) {
+                send(f.channel(), pending);
+            } else {
+                connections--;
+                failed(pending);
+                if (!waiting.isEmpty()) {
+                    inFlight--;
+                    submit(waiting.pollFirst());
+                }
+            }
+        });
+    }
+
+    private void send(Channel channel, Pending pending) {
+        channel.attr(IN_FLIGHT).set(pending);
+        channel.writeAndFlush(pending.request);
+    }
+
+    private void completed(Channel channel, int status) {
+        Pending pending = channel.attr(IN_FLIGHT).getAndSet(null);
+        if (pending == null) {
+            return;
+        }
+        inFlight--;
+        latencyMicros.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - pending.dueNanos));
+        statuses.merge(status, 1L, Long::sum);
+    }
+
+    private void failed(Pending pending) {
+        inFlight--;
+        errors++;
+        finishIfDone();
+    }
+
+    /**
+     * 连接空闲后发送排队的请求
+     */
+    private void release(Channel channel) {
+        Pending pending = waiting.pollFirst();
+        if (pending != null) {
+            send(channel, pending);
+        } else {
+            idle.addLast(channel);
+            finishIfDone();
+        }
+    }
+
+    private void finishIfDone() {
+        if (next == null && inFlight == 0 && !records.hasNext()) {
+            finished.trySuccess(null);
+        }
+    }
+
+    @ChannelHandler.Sharable
+    private final class ReplayHandler extends SimpleChannelInboundHandler<FullHttpResponse> {
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, FullHttpResponse response) {
+            completed(ctx.channel(), response.status().code());
+            if (HttpUtil.isKeepAlive(response)) {
+                release(ctx.channel());
+            } else {
+                ctx.close();
+            }
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) {
+            connections--;
+            idle.remove(ctx.channel());
+            Pending pending = ctx.channel().attr(IN_FLIGHT).getAndSet(null);
+            if (pending != null) {
+                failed(pending);
+            }
+            if (!waiting.isEmpty()) {
+                // 由新连接接替
+                inFlight--;
+                submit(waiting.pollFirst());
+            }
+            finishIfDone();
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            ctx.close();
+        }
+    }
+
+    private static final class Pending {
+        final FullHttpRequest request;
+        final long dueNanos;
+
+        Pending(FullHttpRequest request, long dueNanos) {
+            this.request = request;
+            this.dueNanos = dueNanos;
+        }
+    }
+
+    static final class Record {
+        final long millis;
+        final byte[] head;
+        final byte[] body;
+
+        Record(long millis, byte[] head, byte[] body) {
+            this.millis = millis;
+            this.head = head;
+            this.body = body;
+        }
+
+        /**
+         * 还原请求; 请求体已经聚合, 去掉 chunked 及 Expect 头, 保持长连接
+         */
+        FullHttpRequest request(String host) {
+            String[] lines = new String(head, StandardCharsets.UTF_8).split("\r\n");
+            int space = lines[0].indexOf(' ');
+            FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1,
+                    HttpMethod.valueOf(lines[0].substring(0, space)), lines[0].substring(space + 1), Unpooled.wrappedBuffer(body));
+            for (int i = 1; i < lines.length; i++) {
+                int colon = lines[i].indexOf(": ");
+                if (colon > 0) {
+                    request.headers().add(lines[i].substring(0, colon), lines[i].substring(colon + 2));
+                }
+            }
+            request.headers().remove(HttpHeaderNames.TRANSFER_ENCODING);
+            request.headers().remove(HttpHeaderNames.EXPECT);
+            request.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
+            request.headers().setInt(HttpHeaderNames.CONTENT_LENGTH, body.length);
+            if (!request.headers().contains(HttpHeaderNames.HOST)) {
+                request.headers().set(HttpHeaderNames.HOST, host);
+            }
+            return request;
+        }
+    }
+
+    /**
+     * 依次读取各个录制文件中的记录
+     */
+    static final class RecordIterator implements Iterator<Record> {
+        private final Iterator<File> files;
+        private ByteBuffer buffer;
+        private Record next;
+
+        RecordIterator(List<File> files) {
+            this.files = files.iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null) {
+                if (buffer == null || !advance()) {
+                    if (!files.hasNext()) {
+                        return false;
+                    }
+                    buffer = map(files.next());
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public Record next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Record record = next;
+            next = null;
+            return record;
+        }
+
+        /**
+         * 读取当前文件的下一条记录
+         *
+         * @return 当前文件已读完时返回 false
+         */
+        private boolean advance() {
+            if (buffer.remaining() < RECORD_HEADER) {
+                return false;
+            }
+            int start = buffer.position();
+            int length = buffer.getInt(start);
+            if (length < RECORD_HEADER || length > buffer.remaining()) {
+                return false;
+            }
+            long millis = buffer.getLong(start + 4);
+            byte[] head = new byte[buffer.getInt(start + 12)];
+            byte[] body = new byte[length - RECORD_HEADER - head.length];
+            buffer.position(start + RECORD_HEADER);
+            buffer.get(head).get(body);
+            next = new Record(millis, head, body);
+            return true;
+        }
+
+        private static ByteBuffer map(File file) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+                ByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+                if (buffer.remaining() < FILE_HEADER || buffer.getInt(0) != FILE_MAGIC) {
+                    throw new IOException("not a dapeng-mesh capture file: " + file);
+                }
+                buffer.position(FILE_HEADER);
+                return buffer;
+            } catch (IOException e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.github.dapeng.gateway.metrics;
+
+import com.github.dapeng.gateway.netty.request.RequestContext;
+import com.github.dapeng.gateway.util.DapengMeshCode;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.util.concurrent.FastThreadLocal;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * 网关指标, 以 Prometheus text format 暴露在 {@link com.github.dapeng.gateway.util.Constants#METRICS} .
+ * <p>
+ * 记录时只写当前线程私有的 {@link ThreadMetrics}, 不加锁、不分配对象; 抓取时才合并所有线程的数据.
+ * 线程退出后, 其数据在下次抓取或新线程注册时并入 {@link #RETIRED} 并移除, 计数不丢失也不随线程增减而增长.
+ *
+ * @author agent 2026.10.19
+ */
+public final class GatewayMetrics {
+    private static final String UNKNOWN = "-";
+
+    /**
+     * 耗时分桶(微秒)
+     */
+    private static final long[] LATENCY_BUCKETS = {500, 1_000, 2_500, 5_000, 10_000, 25_000, 50_000, 100_000, 250_000, 500_000, 1_000_000, 2_500_000, 5_000_000, 10_000_000};
+    /**
+     * 报文大小分桶(字节)
+     */
+    private static final long[] SIZE_BUCKETS = {256, 1024, 4096, 16384, 65536, 262144, 1048576, 4194304};
+
+    /**
+     * 已退出线程的汇总, 同时作为 {@link #THREADS} 的锁
+     */
+    private static final ThreadMetrics RETIRED = new ThreadMetrics(null);
+    /**
+     * 存活线程的记录器, RETIRED 锁内访问
+     */
+    private static final List<ThreadMetrics> THREADS = new ArrayList<>();
+
+    private static final FastThreadLocal<ThreadMetrics> LOCAL = new FastThreadLocal<ThreadMetrics>() {
+        @Override
+        protected ThreadMetrics initialValue() {
+            ThreadMetrics metrics = new ThreadMetrics(Thread.currentThread());
+            synchronized (RETIRED) {
+                retireDeadThreads();
+                THREADS.add(metrics);
+            }
+            return metrics;
+        }
+    };
+
+    private static final Map<String, Sampled> SAMPLED = new ConcurrentSkipListMap<>();
+
+    private GatewayMetrics() {
+    }
+
+    /**
+     * 响应写入 socket 后调用, 记录状态码、报文大小及各阶段耗时
+     *
+     * @param context 请求上下文, 可能为空
+     */
+    public static void recordResponse(RequestContext context, HttpResponseStatus status, int responseBytes) {
+        long now = System.nanoTime();
+        ThreadMetrics metrics = LOCAL.get();
+
+        int code = status.code();
+        if (code >= 0 && code < ThreadMetrics.MAX_HTTP_STATUS) {
+            metrics.httpStatus[code]++;
+        }
+        metrics.responseBytes.record(responseBytes);
+        if (context == null) {
+            return;
+        }
+        metrics.requestBytes.record(context.requestBytes());
+
+        MethodMetrics method = metrics.method(context.service().orElse(UNKNOWN), context.version().orElse(UNKNOWN), context.method().orElse(UNKNOWN));
+        recordPhase(method, Phase.PARSE, context.receiveNanos(), context.parsedNanos());
+        recordPhase(method, Phase.AUTH, context.parsedNanos(), context.authNanos());
+        recordPhase(method, Phase.BACKEND, context.dispatchNanos(), context.backendNanos());
+        recordPhase(method, Phase.WRITE, context.writeNanos(), now);
+        recordPhase(method, Phase.TOTAL, context.receiveNanos(), now);
+        SlowRequests.record(context, code, now);
+    }
+
+    /**
+     * 记录一次网关错误码
+     */
+    public static void recordMeshCode(DapengMeshCode code) {
+        LOCAL.get().meshCodes[code.ordinal()]++;
+    }
+
+    /**
+     * 注册一个 gauge, 抓取时读取; 同名覆盖
+     */
+    public static void gauge(String name, String help, LongSupplier supplier) {
+        SAMPLED.put(name, new Sampled(help, "gauge", supplier));
+    }
+
+    /**
+     * 注册一个只增不减的 counter(名字以 _total 结尾), 抓取时读取; 同名覆盖
+     */
+    public static void counter(String name, String help, LongSupplier supplier) {
+        SAMPLED.put(name, new Sampled(help, "counter", supplier));
+    }
+
+    /**
+     * 合并所有线程数据, 输出 Prometheus text format
+     */
+    public static String scrape() {
+        ThreadMetrics total = new ThreadMetrics(null);
+        synchronized (RETIRED) {
+            retireDeadThreads();
+            total.merge(RETIRED);
+            for (ThreadMetrics metrics : THREADS) {
+                total.merge(metrics);
+            }
+        }
+        List<MethodMetrics> methods = total.methods();
+        methods.sort(Comparator.comparing(MethodMetrics::key));
+        long[] httpStatus = total.httpStatus;
+        long[] meshCodes = total.meshCodes;
+
+        StringBuilder out = new StringBuilder(4096 + methods.size() * 4096);
+
+        header(out, "dapeng_mesh_request_duration_seconds", "Gateway request latency by phase", "histogram");
+        for (MethodMetrics method : methods) {
+            for (Phase phase : Phase.values()) {
+                LogHistogram histogram = method.phases[phase.ordinal()];
+                if (histogram.count() == 0) {
+                    continue;
+                }
+                String labels = "service=\"" + escape(method.service) + "\",version=\"" + escape(method.version)
+                        + "\",method=\"" + escape(method.method) + "\",phase=\"" + phase.label() + "\"";
+                histogram(out, "dapeng_mesh_request_duration_seconds", labels, histogram, LATENCY_BUCKETS, TimeUnit.SECONDS.toMicros(1));
+            }
+        }
+
+        header(out, "dapeng_mesh_http_responses_total", "Responses by http status", "counter");
+        for (int i = 0; i < httpStatus.length; i++) {
+            if (httpStatus[i] > 0) {
+                out.append("dapeng_mesh_http_responses_total{code=\"").append(i).append("\"} ").append(httpStatus[i]).append('\n');
+            }
+        }
+
+        header(out, "dapeng_mesh_code_total", "Gateway error responses by DapengMeshCode", "counter");
+        for (DapengMeshCode code : DapengMeshCode.values()) {
+            out.append("dapeng_mesh_code_total{code=\"").append(code.getCode()).append("\"} ").append(meshCodes[code.ordinal()]).append('\n');
+        }
+
+        header(out, "dapeng_mesh_request_bytes", "Request body size", "histogram");
+        histogram(out, "dapeng_mesh_request_bytes", "", total.requestBytes, SIZE_BUCKETS, 1);
+        header(out, "dapeng_mesh_response_bytes", "Response body size", "histogram");
+        histogram(out, "dapeng_mesh_response_bytes", "", total.responseBytes, SIZE_BUCKETS, 1);
+
+        SAMPLED.forEach((name, sampled) -> {
+            header(out, name, sampled.help, sampled.type);
+            out.append(name).append(' ').append(sampled.supplier.getAsLong()).append('\n');
+        });
+        return out.toString();
+    }
+
+    /**
+     * 已退出线程的数据并入 RETIRED, 线程退出前的写入对 isAlive() 返回 false 之后可见; RETIRED 锁内调用
+     */
+    private static void retireDeadThreads() {
+        for (Iterator<ThreadMetrics> it = THREADS.iterator(); it.hasNext(); ) {
+            ThreadMetrics metrics = it.next();
+            if (!metrics.thread.isAlive()) {
+                RETIRED.merge(metrics);
+                it.remove();
+            }
+        }
+    }
+
+    private static void recordPhase(MethodMetrics method, Phase phase, long start, long end) {
+        if (start > 0 && end >= start) {
+            method.phases[phase.ordinal()].record(TimeUnit.NANOSECONDS.toMicros(end - start));
+        }
+    }
+
+    private static void header(StringBuilder out, String name, String help, String type) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    /**
+     * @param unit 记录值与输出单位的比例, 例如微秒转秒为 1000000
+     */
+    private static void histogram(StringBuilder out, String name, String labels, LogHistogram histogram, long[] buckets, long unit) {
+        String prefix = labels.isEmpty() ? "{" : "{" + labels + ",";
+        for (long bucket : buckets) {
+            out.append(name).append("_bucket").append(prefix).append("le=\"").append(format(bucket, unit)).append("\"} ")
+                    .append(histogram.countAtOrBelow(bucket)).append('\n');
+        }
+        out.append(name).append("_bucket").append(prefix).append("le=\"+Inf\"} ").append(histogram.count()).append('\n');
+        String suffix = labels.isEmpty() ? " " : "{" + labels + "} ";
+        out.append(name).append("_sum").append(suffix).append(format(histogram.sum(), unit)).append('\n');
+        out.append(name).append("_count").append(suffix).append(histogram.count()).append('\n');
+    }
+
+    private static String format(long value, long unit) {
+        return unit == 1 ? Long.toString(value) : Double.toString((double) value / unit);
+    }
+
+    private static String escape(String value) {
+        if (value.indexOf('\\') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static final class Sampled {
+        private final String help;
+        private final String type;
+        private final LongSupplier supplier;
+
+        private Sampled(String help, String type, LongSupplier supplier) {
+            this.help = help;
+            this.type = type;
+            this.supplier = supplier;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.github.dapeng.gateway.metrics;
+
+/**
+ * 对数-线性分桶直方图 (HdrHistogram 的简化版), 相对误差约 1/16.
+ * <p>
+ * 0 ~ 31 每个值一个桶, 之后每个 2 的幂区间再均分为 16 个桶.
+ * 非线程安全: 只允许一个线程写, 抓取时由其它线程脏读合并.
+ *
+ * @author agent 2026.10.19
+ */
+public final class LogHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 40;
+
+    static final int BUCKET_COUNT = 2 * SUB_BUCKET_COUNT + (MAX_EXPONENT - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    private final long[] counts = new long[BUCKET_COUNT];
+    private long count;
+    private long sum;
+
+    /**
+     * 记录一个值, 负数按 0 处理
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts[indexOf(value)]++;
+        count++;
+        sum += value;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public long sum() {
+        return sum;
+    }
+
+    /**
+     * 合并另一个直方图, 由抓取线程调用
+     */
+    public void merge(LogHistogram other) {
+        long[] otherCounts = other.counts;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] += otherCounts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+    }
+
+    /**
+     * 小于等于 value 的记录数(按桶上界估算)
+     */
+    public long countAtOrBelow(long value) {
+        int last = indexOf(value);
+        long total = 0;
+        for (int i = 0; i <= last; i++) {
+            total += counts[i];
+        }
+        return total;
+    }
+
+    /**
+     * 分位值(桶上界)
+     *
+     * @param quantile 0 ~ 1
+     */
+    public long valueAtQuantile(double quantile) {
+        long target = (long) Math.ceil(quantile * count);
+        if (target <= 0) {
+            target = 1;
+        }
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            total += counts[i];
+            if (total >= target) {
+                return highestValueOf(i);
+            }
+        }
+        return 0;
+    }
+
+    static int indexOf(long value) {
+        if (value < 2 * SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+        return 2 * SUB_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    static long highestValueOf(int index) {
+        if (index < 2 * SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index - 2 * SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT + 1;
+        int subBucket = (index - 2 * SUB_BUCKET_COUNT) % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+        return ((long) (subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,33 @@
+package com.github.dapeng.gateway.metrics;
+
+/**
+ * 单个线程内某个 service/version/method 的各阶段耗时(微秒)
+ *
+ * @author agent 2026.10.19
+ */
+final class MethodMetrics {
+    final String service;
+    final String version;
+    final String method;
+    final int hash;
+
+    final LogHistogram[] phases = new LogHistogram[Phase.values().length];
+
+    MethodMetrics(String service, String version, String method, int hash) {
+        this.service = service;
+        this.version = version;
+        this.method = method;
+        this.hash = hash;
+        for (int i = 0; i < phases.length; i++) {
+            phases[i] = new LogHistogram();
+        }
+    }
+
+    boolean matches(int hash, String service, String version, String method) {
+        return this.hash == hash && this.method.equals(method) && this.service.equals(service) && this.version.equals(version);
+    }
+
+    String key() {
+        return service + ':' + version + ':' + method;
+    }
+}
@@ -0,0 +1,39 @@
+package com.github.dapeng.gateway.metrics;
+
+/**
+ * 请求处理阶段
+ *
+ * @author agent 2026.10.19
+ */
+public enum Phase {
+    /**
+     * 收到完整请求 -> url 及参数解析完成
+     */
+    PARSE("parse"),
+    /**
+     * 鉴权耗时
+     */
+    AUTH("auth"),
+    /**
+     * 发起后端调用 -> 后端返回
+     */
+    BACKEND("backend"),
+    /**
+     * 开始写响应 -> 写入 socket 完成
+     */
+    WRITE("write"),
+    /**
+     * 收到完整请求 -> 写入 socket 完成
+     */
+    TOTAL("total");
+
+    private final String label;
+
+    Phase(String label) {
+        this.label = label;
+    }
+
+    public String label() {
+        return label;
+    }
+}
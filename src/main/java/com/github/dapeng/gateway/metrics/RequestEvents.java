@@ -0,0 +1,105 @@
+package com.github.dapeng.gateway.metrics;
+
+import com.github.dapeng.gateway.netty.request.RequestContext;
+import com.github.dapeng.gateway.util.SysEnvUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 请求各阶段的 JFR 事件入口.
+ * <p>
+ * 事件类型见 JfrRequestEvents(src/jfr/java, 只在 -P jfr 时编译进包), 只在 {@link SysEnvUtil#JFR_ENABLE} 开启、
+ * JVM 支持 JFR 且包里有该类时按类名加载, 否则每个调用点只读一个常量. 没有录制或事件未开启时 begin 返回 null, 不填字段.
+ * 事件对象以 Object 传递, 默认构建和调用方都不依赖 jdk.jfr.
+ *
+ * @author agent 2026.10.19
+ */
+public final class RequestEvents {
+    private static final Logger logger = LoggerFactory.getLogger(RequestEvents.class);
+
+    private static final String JFR_SINK = "com.github.dapeng.gateway.metrics.JfrRequestEvents";
+
+    private static final Sink SINK = Boolean.parseBoolean(SysEnvUtil.JFR_ENABLE) ? loadSink() : null;
+
+    private RequestEvents() {
+    }
+
+    /**
+     * 事件实现, 由 JfrRequestEvents 提供
+     */
+    interface Sink {
+        void received(RequestContext context);
+
+        Object beginAuth();
+
+        void endAuth(Object event, RequestContext context, boolean allowed);
+
+        Object beginBackend();
+
+        void endBackend(Object event, RequestContext context, boolean success);
+
+        Object beginWrite();
+
+        void endWrite(Object event, RequestContext context, int status, int responseBytes, boolean success);
+    }
+
+    private static Sink loadSink() {
+        try {
+            Class.forName("jdk.jfr.Event");
+        } catch (Throwable e) {
+            logger.info("jfr not available, gateway jfr events disabled");
+            return null;
+        }
+        try {
+            return (Sink) Class.forName(JFR_SINK).getDeclaredConstructor().newInstance();
+        } catch (ClassNotFoundException e) {
+            logger.info("gateway jfr events not packaged (build with -P jfr), gateway jfr events disabled");
+            return null;
+        } catch (Throwable e) {
+            logger.warn("can not load gateway jfr events, gateway jfr events disabled: " + e.getMessage(), e);
+            return null;
+        }
+    }
+
+    /**
+     * 请求解析完成
+     */
+    public static void received(RequestContext context) {
+        if (SINK != null) {
+            SINK.received(context);
+        }
+    }
+
+    public static Object beginAuth() {
+        return SINK != null ? SINK.beginAuth() : null;
+    }
+
+    public static void endAuth(Object event, RequestContext context, boolean allowed) {
+        if (event != null) {
+            SINK.endAuth(event, context, allowed);
+        }
+    }
+
+    public static Object beginBackend() {
+        return SINK != null ? SINK.beginBackend() : null;
+    }
+
+    public static void endBackend(Object event, RequestContext context, boolean success) {
+        if (event != null) {
+            SINK.endBackend(event, context, success);
+        }
+    }
+
+    /**
+     * 开始写响应, 写入完成时调用 {@link #endWrite}
+     */
+    public static Object beginWrite() {
+        return SINK != null ? SINK.beginWrite() : null;
+    }
+
+    public static void endWrite(Object event, RequestContext context, int status, int responseBytes, boolean success) {
+        if (event != null) {
+            SINK.endWrite(event, context, status, responseBytes, success);
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.github.dapeng.gateway.metrics;
+
+import com.github.dapeng.gateway.netty.request.RequestContext;
+import com.github.dapeng.gateway.util.JsonEnvelope;
+import com.github.dapeng.gateway.util.SysEnvUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 每个时间窗口内最慢的 N 个请求及其各阶段时间线.
+ * <p>
+ * 每个窗口是 N 个槽位的数组, 请求完成时若总耗时大于窗口内的最小值, 用 CAS 替换掉最快的那个; 最小值只增不减,
+ * 绝大多数请求只读一次 volatile 就返回, 不分配对象. 窗口到期后由第一个发现的线程用 CAS 换成新窗口, 保留上一个窗口.
+ * <p>
+ * 只记录路由(/api/{service}/{version}/{method}), 不记录 apiKey 和 url 参数(timestamp、secret 等).
+ *
+ * @author agent 2026.10.19
+ */
+public final class SlowRequests {
+    private static final int SIZE = Integer.parseInt(SysEnvUtil.SLOW_REQUEST_SIZE);
+    private static final long WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(Long.parseLong(SysEnvUtil.SLOW_REQUEST_WINDOW));
+    private static final int MAX_RETRIES = 4;
+
+    private static final AtomicReference<Window> CURRENT = new AtomicReference<>(new Window(System.nanoTime(), null));
+
+    private SlowRequests() {
+    }
+
+    /**
+     * 响应写入 socket 后调用
+     */
+    static void record(RequestContext context, int status, long writtenNanos) {
+        if (SIZE <= 0 || context.receiveNanos() == 0) {
+            return;
+        }
+        Window window = current(writtenNanos);
+        long total = writtenNanos - context.receiveNanos();
+        if (total <= window.minNanos) {
+            return;
+        }
+        window.offer(new Sample(context, status, writtenNanos));
+    }
+
+    private static Window current(long now) {
+        Window window = CURRENT.get();
+        while (now - window.beginNanos >= WINDOW_NANOS) {
+            Window next = new Window(now, window);
+            if (CURRENT.compareAndSet(window, next)) {
+                return next;
+            }
+            window = CURRENT.get();
+        }
+        return window;
+    }
+
+    /**
+     * 当前窗口及上一个窗口的慢请求, 按耗时倒序
+     */
+    public static String toJson() {
+        Window window = current(System.nanoTime());
+        Window previous = window.previous;
+        StringBuilder json = new StringBuilder(4096);
+        json.append("{\"windowMillis\":").append(TimeUnit.NANOSECONDS.toMillis(WINDOW_NANOS)).append(",\"current\":");
+        window.appendTo(json);
+        json.append(",\"previous\":");
+        if (previous == null) {
+            json.append("[]");
+        } else {
+            previous.appendTo(json);
+        }
+        return json.append(",\"status\":1}").toString();
+    }
+
+    private static final class Window {
+        final long beginNanos;
+        /**
+         * 只保留上一个窗口, 创建新窗口时断开更早的
+         */
+        volatile Window previous;
+        final AtomicReferenceArray<Sample> samples = new AtomicReferenceArray<>(SIZE);
+        /**
+         * 槽位已满时的最小耗时, 未满时为 0
+         */
+        volatile long minNanos;
+
+        Window(long beginNanos, Window previous) {
+            this.beginNanos = beginNanos;
+            if (previous != null) {
+                previous.previous = null;
+            }
+            this.previous = previous;
+        }
+
+        void offer(Sample sample) {
+            for (int retry = 0; retry < MAX_RETRIES; retry++) {
+                int slot = -1;
+                Sample fastest = null;
+                for (int i = 0; i < SIZE; i++) {
+                    Sample s = samples.get(i);
+                    if (s == null) {
+                        slot = i;
+                        fastest = null;
+                        break;
+                    }
+                    if (fastest == null || s.totalNanos < fastest.totalNanos) {
+                        slot = i;
+                        fastest = s;
+                    }
+                }
+                if (fastest != null && fastest.totalNanos >= sample.totalNanos) {
+                    return;
+                }
+                if (samples.compareAndSet(slot, fastest, sample)) {
+                    updateMin();
+                    return;
+                }
+            }
+        }
+
+        private void updateMin() {
+            long min = Long.MAX_VALUE;
+            for (int i = 0; i < SIZE; i++) {
+                Sample s = samples.get(i);
+                if (s == null) {
+                    return;
+                }
+                min = Math.min(min, s.totalNanos);
+            }
+            // 并发更新时只会写入偏小的值, 不会漏掉慢请求
+            if (min > minNanos) {
+                minNanos = min;
+            }
+        }
+
+        void appendTo(StringBuilder json) {
+            List<Sample> sorted = new ArrayList<>(SIZE);
+            for (int i = 0; i < SIZE; i++) {
+                Sample s = samples.get(i);
+                if (s != null) {
+                    sorted.add(s);
+                }
+            }
+            sorted.sort((a, b) -> Long.compare(b.totalNanos, a.totalNanos));
+            json.append('[');
+            for (int i = 0; i < sorted.size(); i++) {
+                if (i > 0) {
+                    json.append(',');
+                }
+                sorted.get(i).appendTo(json);
+            }
+            json.append(']');
+        }
+    }
+
+    /**
+     * 请求完成时复制的时间线, 各阶段为相对收到请求的微秒数, 未经过该阶段为 -1
+     */
+    private static final class Sample {
+        final long totalNanos;
+        final long epochMillis;
+        final long sessionTid;
+        final String route;
+        final String service;
+        final String method;
+        final int status;
+        final long parsed;
+        final long auth;
+        final long dispatch;
+        final long backend;
+        final long write;
+
+        Sample(RequestContext context, int status, long writtenNanos) {
+            long receive = context.receiveNanos();
+            this.totalNanos = writtenNanos - receive;
+            this.epochMillis = System.currentTimeMillis() - TimeUnit.NANOSECONDS.toMillis(totalNanos);
+            this.sessionTid = context.sessionTid();
+            this.route = route(context);
+            this.service = context.service().orElse(null);
+            this.method = context.method().orElse(null);
+            this.status = status;
+            this.parsed = offset(receive, context.parsedNanos());
+            this.auth = offset(receive, context.authNanos());
+            this.dispatch = offset(receive, context.dispatchNanos());
+            this.backend = offset(receive, context.backendNanos());
+            this.write = offset(receive, context.writeNanos());
+        }
+
+        /**
+         * 去掉 url 参数, /api/ 开头的只保留前四段, 去掉 apiKey
+         */
+        static String route(RequestContext context) {
+            if (context.service().isPresent() && context.version().isPresent() && context.method().isPresent()) {
+                return "/api/" + context.service().get() + "/" + context.version().get() + "/" + context.method().get();
+            }
+            String url = context.requestUrl();
+            if (url == null) {
+                return null;
+            }
+            int end = url.indexOf('?');
+            String path = end < 0 ? url : url.substring(0, end);
+            if (path.startsWith("/api/")) {
+                int slash = 0;
+                for (int i = 0; i < 4 && slash >= 0; i++) {
+                    slash = path.indexOf('/', slash + 1);
+                }
+                if (slash > 0) {
+                    path = path.substring(0, slash);
+                }
+            }
+            return path;
+        }
+
+        private static long offset(long receive, long nanos) {
+            return nanos == 0 ? -1 : TimeUnit.NANOSECONDS.toMicros(nanos - receive);
+        }
+
+        void appendTo(StringBuilder json) {
+            json.append("{\"sessionTid\":\"");
+            if (sessionTid != 0) {
+                String hex = Long.toHexString(sessionTid);
+                for (int i = hex.length(); i < 16; i++) {
+                    json.append('0');
+                }
+                json.append(hex);
+            }
+            json.append("\",\"receivedAt\":").append(epochMillis)
+                    .append(",\"route\":\"");
+            JsonEnvelope.escape(json, route == null ? "" : route);
+            json.append("\",\"service\":\"");
+            JsonEnvelope.escape(json, service == null ? "" : service);
+            json.append("\",\"method\":\"");
+            JsonEnvelope.escape(json, method == null ? "" : method);
+            json.append("\",\"httpStatus\":").append(status)
+                    .append(",\"totalMicros\":").append(TimeUnit.NANOSECONDS.toMicros(totalNanos))
+                    .append(",\"parsedMicros\":").append(parsed)
+                    .append(",\"authMicros\":").append(auth)
+                    .append(",\"dispatchMicros\":").append(dispatch)
+                    .append(",\"backendMicros\":").append(backend)
+                    .append(",\"writeMicros\":").append(write)
+                    .append('}');
+        }
+    }
+}
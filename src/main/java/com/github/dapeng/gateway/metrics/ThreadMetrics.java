@@ -0,0 +1,127 @@
+package com.github.dapeng.gateway.metrics;
+
+import com.github.dapeng.gateway.util.DapengMeshCode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 单个线程私有的指标记录器, 只由所属线程写入, 抓取时由 {@link GatewayMetrics} 合并.
+ * <p>
+ * service/version/method 使用开放寻址表查找, 命中时不产生任何对象;
+ * 每个线程最多记录 {@link #MAX_METHODS} 个方法, 超出部分统一记入 {@link #OTHER}, 防止非法 url 撑爆内存.
+ *
+ * @author agent 2026.10.19
+ */
+final class ThreadMetrics {
+    static final int MAX_METHODS = 1024;
+    static final String OTHER = "other";
+
+    static final int MAX_HTTP_STATUS = 600;
+
+    /**
+     * 所属线程, 为 null 表示已退出线程的汇总
+     */
+    final Thread thread;
+
+    final long[] httpStatus = new long[MAX_HTTP_STATUS];
+    final long[] meshCodes = new long[DapengMeshCode.values().length];
+    final LogHistogram requestBytes = new LogHistogram();
+    final LogHistogram responseBytes = new LogHistogram();
+
+    private volatile MethodMetrics[] table = new MethodMetrics[64];
+    private int size;
+    private MethodMetrics overflow;
+
+    ThreadMetrics(Thread thread) {
+        this.thread = thread;
+    }
+
+    /**
+     * 合并已退出线程的数据, 只用于汇总, 由调用方加锁
+     */
+    void merge(ThreadMetrics dead) {
+        for (int i = 0; i < httpStatus.length; i++) {
+            httpStatus[i] += dead.httpStatus[i];
+        }
+        for (int i = 0; i < meshCodes.length; i++) {
+            meshCodes[i] += dead.meshCodes[i];
+        }
+        requestBytes.merge(dead.requestBytes);
+        responseBytes.merge(dead.responseBytes);
+        for (MethodMetrics source : dead.methods()) {
+            MethodMetrics target = method(source.service, source.version, source.method);
+            for (int i = 0; i < target.phases.length; i++) {
+                target.phases[i].merge(source.phases[i]);
+            }
+        }
+    }
+
+    MethodMetrics method(String service, String version, String method) {
+        int hash = (service.hashCode() * 31 + version.hashCode()) * 31 + method.hashCode();
+        MethodMetrics[] tab = table;
+        int mask = tab.length - 1;
+        for (int i = spread(hash) & mask; ; i = (i + 1) & mask) {
+            MethodMetrics metrics = tab[i];
+            if (metrics == null) {
+                break;
+            }
+            if (metrics.matches(hash, service, version, method)) {
+                return metrics;
+            }
+        }
+
+        if (size >= MAX_METHODS) {
+            if (overflow == null) {
+                overflow = new MethodMetrics(OTHER, OTHER, OTHER, 0);
+            }
+            return overflow;
+        }
+        MethodMetrics metrics = new MethodMetrics(service, version, method, hash);
+        if ((size + 1) * 2 > tab.length) {
+            tab = resize(tab);
+        }
+        insert(tab, metrics);
+        size++;
+        // volatile 写, 抓取线程可见
+        table = tab;
+        return metrics;
+    }
+
+    List<MethodMetrics> methods() {
+        MethodMetrics[] tab = table;
+        List<MethodMetrics> result = new ArrayList<>(size + 1);
+        for (MethodMetrics metrics : tab) {
+            if (metrics != null) {
+                result.add(metrics);
+            }
+        }
+        if (overflow != null) {
+            result.add(overflow);
+        }
+        return result;
+    }
+
+    private static MethodMetrics[] resize(MethodMetrics[] old) {
+        MethodMetrics[] tab = new MethodMetrics[old.length << 1];
+        for (MethodMetrics metrics : old) {
+            if (metrics != null) {
+                insert(tab, metrics);
+            }
+        }
+        return tab;
+    }
+
+    private static void insert(MethodMetrics[] tab, MethodMetrics metrics) {
+        int mask = tab.length - 1;
+        int i = spread(metrics.hash) & mask;
+        while (tab[i] != null) {
+            i = (i + 1) & mask;
+        }
+        tab[i] = metrics;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
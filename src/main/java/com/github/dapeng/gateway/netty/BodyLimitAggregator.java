@@ -0,0 +1,137 @@
+package com.github.dapeng.gateway.netty;
+
+import com.github.dapeng.gateway.metrics.GatewayMetrics;
+import com.github.dapeng.gateway.util.SysEnvUtil;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPipeline;
+import io.netty.handler.codec.http.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按路由限制请求体大小的 {@link HttpObjectAggregator}.
+ * <p>
+ * 收到请求行和请求头后, 根据 url 中的服务名或路径前缀确定该请求允许的最大请求体,
+ * Content-Length 超出时直接返回 413, 带 Expect: 100-continue 的请求直接拒绝而不发送 100, 都不读取请求体.
+ * 没有 Content-Length 的 chunked 请求只能边读边判断, 仍按全局上限 {@link SysEnvUtil#BODY_MAX} 处理.
+ * <p>
+ * 每个连接(h2 每个 stream)一个实例.
+ *
+ * @author agent 2026.10.19
+ */
+public class BodyLimitAggregator extends HttpObjectAggregator {
+    private static final Logger logger = LoggerFactory.getLogger(BodyLimitAggregator.class);
+
+    static final int MAX = Integer.parseInt(SysEnvUtil.BODY_MAX);
+
+    /**
+     * 路径前缀 -> 上限, 按前缀长度倒序
+     */
+    private static final List<Map.Entry<String, Integer>> ROUTE_LIMITS = new ArrayList<>();
+    /**
+     * 服务名 -> 上限
+     */
+    private static final Map<String, Integer> SERVICE_LIMITS = new HashMap<>();
+
+    private static final LongAdder REJECTED = new LongAdder();
+
+    static {
+        parse(SysEnvUtil.BODY_MAX_ROUTES);
+        GatewayMetrics.counter("dapeng_mesh_body_rejected_total", "Requests rejected before reading an oversized body", REJECTED::sum);
+    }
+
+    public BodyLimitAggregator() {
+        super(MAX);
+    }
+
+    @Override
+    protected boolean isContentLengthInvalid(HttpMessage start, int maxContentLength) {
+        return super.isContentLengthInvalid(start, limitOf(start, maxContentLength));
+    }
+
+    @Override
+    protected Object newContinueResponse(HttpMessage start, int maxContentLength, ChannelPipeline pipeline) {
+        Object response = super.newContinueResponse(start, limitOf(start, maxContentLength), pipeline);
+        if (response instanceof HttpResponse
+                && ((HttpResponse) response).status().code() == HttpResponseStatus.REQUEST_ENTITY_TOO_LARGE.code()) {
+            reject(start);
+        }
+        return response;
+    }
+
+    @Override
+    protected void handleOversizedMessage(ChannelHandlerContext ctx, HttpMessage oversized) throws Exception {
+        reject(oversized);
+        super.handleOversizedMessage(ctx, oversized);
+    }
+
+    private static void reject(HttpMessage message) {
+        REJECTED.increment();
+        if (logger.isDebugEnabled() && message instanceof HttpRequest) {
+            logger.debug("request body too large, uri: {}, content-length: {}", ((HttpRequest) message).uri(), HttpUtil.getContentLength(message, -1L));
+        }
+    }
+
+    private static int limitOf(HttpMessage message, int defaultLimit) {
+        return message instanceof HttpRequest ? limitOf(((HttpRequest) message).uri(), defaultLimit) : defaultLimit;
+    }
+
+    /**
+     * 服务名优先, 其次最长的路径前缀; 前缀按路径段匹配, /api/list 匹配 /api/list 和 /api/list/x, 不匹配 /api/listAll
+     *
+     * @param uri 请求行中的 uri, 可以带参数
+     */
+    static int limitOf(String uri, int defaultLimit) {
+        int end = uri.indexOf('?');
+        String path = end < 0 ? uri : uri.substring(0, end);
+        if (!SERVICE_LIMITS.isEmpty()) {
+            // /api/{service}/{version}/{method}
+            int first = path.indexOf('/', 1);
+            int second = first < 0 ? -1 : path.indexOf('/', first + 1);
+            if (second > first + 1) {
+                Integer limit = SERVICE_LIMITS.get(path.substring(first + 1, second));
+                if (limit != null) {
+                    return limit;
+                }
+            }
+        }
+        for (Map.Entry<String, Integer> route : ROUTE_LIMITS) {
+            if (matches(path, route.getKey())) {
+                return route.getValue();
+            }
+        }
+        return defaultLimit;
+    }
+
+    private static boolean matches(String path, String prefix) {
+        return path.startsWith(prefix) && (path.length() == prefix.length()
+                || prefix.charAt(prefix.length() - 1) == '/' || path.charAt(prefix.length()) == '/');
+    }
+
+    private static void parse(String config) {
+        for (String item : config.split(",")) {
+            item = item.trim();
+            int colon = item.lastIndexOf(':');
+            if (colon <= 0) {
+                continue;
+            }
+            String route = item.substring(0, colon).trim();
+            int limit;
+            try {
+                limit = Math.min(Integer.parseInt(item.substring(colon + 1).trim()), MAX);
+            } catch (NumberFormatException e) {
+                logger.warn("invalid body limit, ignored: {}", item);
+                continue;
+            }
+            if (route.startsWith("/")) {
+                ROUTE_LIMITS.add(new AbstractMap.SimpleImmutableEntry<>(route, limit));
+            } else {
+                SERVICE_LIMITS.put(route, limit);
+            }
+        }
+        ROUTE_LIMITS.sort((a, b) -> b.getKey().length() - a.getKey().length());
+    }
+}
@@ -0,0 +1,102 @@
+package com.github.dapeng.gateway.netty;
+
+import io.netty.channel.Channel;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.util.concurrent.GlobalEventExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 关闭网关时主动排空连接.
+ * <p>
+ * 健康检查变为 YELLOW 后: 空闲的 keep-alive 连接立即关闭, 其余连接在写完当前响应后关闭(响应带 Connection: close);
+ * 负载均衡连续收到足够多次失败的健康检查后再停止监听, 若最近没有负载均衡来做健康检查则不等待.
+ *
+ * @author agent 2026.10.19
+ */
+public class ConnectionDrainer {
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionDrainer.class);
+
+    private static final ChannelGroup CHANNELS = new DefaultChannelGroup("dapeng-mesh-connections", GlobalEventExecutor.INSTANCE);
+
+    private static final Object HEALTH_CHECK_MONITOR = new Object();
+    private static final AtomicInteger FAILED_HEALTH_CHECKS = new AtomicInteger(0);
+    private static volatile long lastHealthCheckNanos = 0;
+
+    private ConnectionDrainer() {
+    }
+
+    /**
+     * 新连接建立时调用
+     */
+    public static void register(Channel channel) {
+        channel.attr(ConnectionState.KEY).set(new ConnectionState());
+        CHANNELS.add(channel);
+    }
+
+    public static int connections() {
+        return CHANNELS.size();
+    }
+
+    /**
+     * 每次响应健康检查时调用
+     *
+     * @param healthy 本次是否返回健康
+     */
+    public static void healthChecked(boolean healthy) {
+        lastHealthCheckNanos = System.nanoTime();
+        if (!healthy) {
+            FAILED_HEALTH_CHECKS.incrementAndGet();
+            synchronized (HEALTH_CHECK_MONITOR) {
+                HEALTH_CHECK_MONITOR.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * 等待负载均衡把本节点摘除: 收到 failures 次失败的健康检查即返回.
+     * 如果 timeout 时间内没有收到过健康检查, 说明前面没有负载均衡探测, 直接返回.
+     *
+     * @return 是否观察到足够多次失败的健康检查
+     */
+    public static boolean awaitLoadBalancer(int failures, long timeout, TimeUnit unit) throws InterruptedException {
+        long timeoutNanos = unit.toNanos(timeout);
+        long begin = System.nanoTime();
+        if (lastHealthCheckNanos == 0 || begin - lastHealthCheckNanos > timeoutNanos) {
+            logger.info("no health check received in the last {}ms, skip waiting for load balancer", unit.toMillis(timeout));
+            return false;
+        }
+        long deadline = begin + timeoutNanos;
+        synchronized (HEALTH_CHECK_MONITOR) {
+            while (FAILED_HEALTH_CHECKS.get() < failures) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    logger.warn("load balancer sent {} failed health checks in {}ms, expect {}", FAILED_HEALTH_CHECKS.get(), unit.toMillis(timeout), failures);
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(HEALTH_CHECK_MONITOR, remaining);
+            }
+        }
+        logger.info("load balancer sent {} failed health checks in {}ms", FAILED_HEALTH_CHECKS.get(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin));
+        return true;
+    }
+
+    /**
+     * 关闭所有空闲连接, 在各自的 event loop 中判断是否空闲
+     */
+    public static void closeIdleConnections() {
+        logger.info("close idle connections, current connections: {}", CHANNELS.size());
+        for (Channel channel : CHANNELS) {
+            channel.eventLoop().execute(() -> {
+                ConnectionState state = ConnectionState.get(channel);
+                if (state == null || state.isIdle()) {
+                    channel.close();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.github.dapeng.gateway.netty;
+
+import com.github.dapeng.gateway.metrics.GatewayMetrics;
+import com.github.dapeng.gateway.util.SysEnvUtil;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.handler.timeout.IdleState;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.handler.timeout.IdleStateHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 连接治理: 总连接数及单 ip 连接数限制, 空闲连接及写不出去的连接关闭.
+ * <p>
+ * 超出限制的新连接在 channelActive 时直接关闭; 空闲检测由前面的 {@link IdleStateHandler} 触发,
+ * 读空闲时只关闭没有未完成请求的连接(后端慢由后端超时处理), 写空闲时关闭仍有响应积压的连接(客户端不读).
+ * keep-alive 请求数上限见 {@link com.github.dapeng.gateway.netty.handler.HttpRequestHandler}.
+ * <p>
+ * 背压: 连接不可写(待写出字节超过高水位)或未完成请求数达到上限时关闭 autoRead, 不再读取和转发该连接的请求,
+ * 响应写出、可写后恢复. 每个慢客户端或刷请求的客户端占用的内存有上限.
+ *
+ * @author agent 2026.10.19
+ */
+@ChannelHandler.Sharable
+public class ConnectionGovernor extends ChannelInboundHandlerAdapter {
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionGovernor.class);
+
+    static final long READ_IDLE_MILLIS = Long.parseLong(SysEnvUtil.CONNECTION_READ_IDLE_TIMEOUT);
+    static final long WRITE_IDLE_MILLIS = Long.parseLong(SysEnvUtil.CONNECTION_WRITE_IDLE_TIMEOUT);
+    public static final int MAX_REQUESTS = Integer.parseInt(SysEnvUtil.CONNECTION_MAX_REQUESTS);
+    private static final int MAX_CONNECTIONS = Integer.parseInt(SysEnvUtil.CONNECTION_MAX);
+    private static final int MAX_PER_IP = Integer.parseInt(SysEnvUtil.CONNECTION_MAX_PER_IP);
+    private static final int MAX_IN_FLIGHT = Integer.parseInt(SysEnvUtil.CONNECTION_MAX_IN_FLIGHT);
+
+    private static final AtomicInteger CONNECTIONS = new AtomicInteger();
+    private static final ConcurrentHashMap<String, AtomicInteger> IP_CONNECTIONS = new ConcurrentHashMap<>();
+
+    private static final LongAdder REJECTED = new LongAdder();
+    private static final LongAdder IDLE_CLOSED = new LongAdder();
+    private static final AtomicInteger PAUSED = new AtomicInteger();
+    private static final LongAdder PAUSES = new LongAdder();
+
+    static {
+        GatewayMetrics.gauge("dapeng_mesh_connections", "Open client connections", CONNECTIONS::get);
+        GatewayMetrics.gauge("dapeng_mesh_connection_ips", "Distinct client ips with open connections", IP_CONNECTIONS::size);
+        GatewayMetrics.gauge("dapeng_mesh_connection_max_per_ip", "Open connections of the busiest client ip", ConnectionGovernor::maxPerIp);
+        GatewayMetrics.counter("dapeng_mesh_connections_rejected_total", "Connections closed on connection limits", REJECTED::sum);
+        GatewayMetrics.counter("dapeng_mesh_connections_idle_closed_total", "Connections closed by idle timeouts", IDLE_CLOSED::sum);
+        GatewayMetrics.gauge("dapeng_mesh_connections_paused", "Connections with reading paused by backpressure", PAUSED::get);
+        GatewayMetrics.counter("dapeng_mesh_connection_pauses_total", "Times reading was paused by backpressure", PAUSES::sum);
+    }
+
+    /**
+     * 是否需要空闲检测, 不需要时不添加 {@link IdleStateHandler}
+     */
+    static boolean idleDetection() {
+        return READ_IDLE_MILLIS > 0 || WRITE_IDLE_MILLIS > 0;
+    }
+
+    static IdleStateHandler newIdleStateHandler() {
+        return new IdleStateHandler(READ_IDLE_MILLIS, WRITE_IDLE_MILLIS, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 子连接的写缓冲水位
+     */
+    public static WriteBufferWaterMark writeBufferWaterMark() {
+        return new WriteBufferWaterMark(Integer.parseInt(SysEnvUtil.CONNECTION_WRITE_BUFFER_LOW), Integer.parseInt(SysEnvUtil.CONNECTION_WRITE_BUFFER_HIGH));
+    }
+
+    /**
+     * 根据可写状态和未完成请求数暂停或恢复读取, 只能在 channel 的 event loop 中调用
+     */
+    public static void updateAutoRead(Channel channel, ConnectionState state) {
+        boolean read = channel.isWritable() && (MAX_IN_FLIGHT <= 0 || state.inFlight() < MAX_IN_FLIGHT);
+        if (read == !state.paused()) {
+            return;
+        }
+        state.paused(!read);
+        channel.config().setAutoRead(read);
+        if (read) {
+            PAUSED.decrementAndGet();
+        } else {
+            PAUSED.incrementAndGet();
+            PAUSES.increment();
+        }
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        ConnectionState state = ConnectionState.get(ctx.channel());
+        if (state != null) {
+            updateAutoRead(ctx.channel(), state);
+        }
+        super.channelWritabilityChanged(ctx);
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        ConnectionState state = ConnectionState.get(ctx.channel());
+        if (state != null && !admit(state, ctx.channel().remoteAddress())) {
+            REJECTED.increment();
+            if (logger.isDebugEnabled()) {
+                logger.debug("too many connections, close {}", ctx.channel().remoteAddress());
+            }
+            ctx.close();
+            return;
+        }
+        super.channelActive(ctx);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        ConnectionState state = ConnectionState.get(ctx.channel());
+        if (state != null) {
+            release(state);
+            if (state.paused()) {
+                state.paused(false);
+                PAUSED.decrementAndGet();
+            }
+        }
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+        if (evt instanceof IdleStateEvent) {
+            ConnectionState state = ConnectionState.get(ctx.channel());
+            IdleState idle = ((IdleStateEvent) evt).state();
+            boolean close = idle == IdleState.READER_IDLE ? state == null || state.isIdle() : pendingWriteBytes(ctx) > 0;
+            if (close) {
+                IDLE_CLOSED.increment();
+                if (logger.isDebugEnabled()) {
+                    logger.debug("{}, close {}", idle, ctx.channel().remoteAddress());
+                }
+                ctx.close();
+            }
+            return;
+        }
+        super.userEventTriggered(ctx, evt);
+    }
+
+    private static boolean admit(ConnectionState state, SocketAddress address) {
+        if (CONNECTIONS.incrementAndGet() > MAX_CONNECTIONS && MAX_CONNECTIONS > 0) {
+            CONNECTIONS.decrementAndGet();
+            return false;
+        }
+        state.counted(true);
+
+        if (address instanceof InetSocketAddress) {
+            String ip = ((InetSocketAddress) address).getHostString();
+            AtomicInteger counter = IP_CONNECTIONS.compute(ip, (k, v) -> {
+                AtomicInteger c = v == null ? new AtomicInteger() : v;
+                c.incrementAndGet();
+                return c;
+            });
+            state.remoteIp(ip);
+            if (MAX_PER_IP > 0 && counter.get() > MAX_PER_IP) {
+                release(state);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void release(ConnectionState state) {
+        if (!state.counted()) {
+            return;
+        }
+        state.counted(false);
+        CONNECTIONS.decrementAndGet();
+        String ip = state.remoteIp();
+        if (ip != null) {
+            state.remoteIp(null);
+            // 计数归零时移除, 避免 ip 越积越多
+            IP_CONNECTIONS.computeIfPresent(ip, (k, v) -> v.decrementAndGet() <= 0 ? null : v);
+        }
+    }
+
+    private static long pendingWriteBytes(ChannelHandlerContext ctx) {
+        ChannelOutboundBuffer buffer = ctx.channel().unsafe().outboundBuffer();
+        return buffer == null ? 0 : buffer.totalPendingWriteBytes();
+    }
+
+    private static long maxPerIp() {
+        int max = 0;
+        for (AtomicInteger counter : IP_CONNECTIONS.values()) {
+            max = Math.max(max, counter.get());
+        }
+        return max;
+    }
+}
@@ -0,0 +1,85 @@
+package com.github.dapeng.gateway.netty;
+
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+
+/**
+ * 单个连接的状态, 挂在 channel attribute 上, 只在该 channel 的 event loop 中读写
+ *
+ * @author agent 2026.10.19
+ */
+public class ConnectionState {
+    static final AttributeKey<ConnectionState> KEY = AttributeKey.valueOf("dapeng-mesh-connection-state");
+
+    /**
+     * 已收到但还未写完响应的请求数
+     */
+    private int inFlight;
+    /**
+     * 该连接上收到的请求总数
+     */
+    private int requests;
+    /**
+     * 是否因背压暂停了读取
+     */
+    private boolean paused;
+    /**
+     * 是否已计入连接数
+     */
+    private boolean counted;
+    /**
+     * 计入单 ip 连接数的客户端 ip, 未计入时为空
+     */
+    private String remoteIp;
+
+    /**
+     * @return channel 未注册状态时(例如 EmbeddedChannel)返回 null
+     */
+    public static ConnectionState get(Channel channel) {
+        return channel.attr(KEY).get();
+    }
+
+    /**
+     * @return 该连接上收到的请求总数(含本次)
+     */
+    public int requestReceived() {
+        inFlight++;
+        return ++requests;
+    }
+
+    public void responseWritten() {
+        inFlight--;
+    }
+
+    public boolean isIdle() {
+        return inFlight <= 0;
+    }
+
+    int inFlight() {
+        return inFlight;
+    }
+
+    boolean paused() {
+        return paused;
+    }
+
+    void paused(boolean paused) {
+        this.paused = paused;
+    }
+
+    boolean counted() {
+        return counted;
+    }
+
+    void counted(boolean counted) {
+        this.counted = counted;
+    }
+
+    String remoteIp() {
+        return remoteIp;
+    }
+
+    void remoteIp(String remoteIp) {
+        this.remoteIp = remoteIp;
+    }
+}
@@ -0,0 +1,178 @@
+package com.github.dapeng.gateway.netty;
+
+import com.github.dapeng.gateway.metrics.GatewayMetrics;
+import com.github.dapeng.gateway.metrics.LogHistogram;
+import com.github.dapeng.gateway.util.SysEnvUtil;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.EventExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * worker 线程阻塞检测.
+ * <p>
+ * 看门狗线程每隔 {@link SysEnvUtil#LOOP_WATCHDOG_INTERVAL} 向每个 event loop 提交一个探测任务, 记录任务排队时间;
+ * 同一时刻每个 event loop 最多只有一个探测任务. 探测任务超过阈值仍未执行时, 对该 worker 线程取一次堆栈并打印,
+ * 一次阻塞只打印一次. 正常情况下每个 event loop 每个间隔只多执行一个空任务, 可以在生产环境常开.
+ *
+ * @author agent 2026.10.19
+ */
+public final class EventLoopWatchdog {
+    private static final Logger logger = LoggerFactory.getLogger(EventLoopWatchdog.class);
+
+    private static final long INTERVAL_MILLIS = Long.parseLong(SysEnvUtil.LOOP_WATCHDOG_INTERVAL);
+    private static final long THRESHOLD_NANOS = TimeUnit.MILLISECONDS.toNanos(Long.parseLong(SysEnvUtil.LOOP_WATCHDOG_THRESHOLD));
+    private static final int MAX_STACK_DEPTH = 32;
+
+    private static final List<LoopProbe> PROBES = new CopyOnWriteArrayList<>();
+
+    private static final LongAdder STALLS = new LongAdder();
+    private static final LongAdder STALL_MILLIS = new LongAdder();
+
+    static {
+        GatewayMetrics.counter("dapeng_mesh_event_loop_stalls_total", "Event loop tasks delayed longer than the watchdog threshold", STALLS::sum);
+        GatewayMetrics.counter("dapeng_mesh_event_loop_stall_millis_total", "Total delay of stalled event loop tasks", STALL_MILLIS::sum);
+        GatewayMetrics.gauge("dapeng_mesh_event_loop_lag_p99_micros", "99th percentile of event loop task queueing delay", () -> lagQuantile(0.99));
+        GatewayMetrics.gauge("dapeng_mesh_event_loop_lag_max_micros", "Maximum event loop task queueing delay", () -> lagQuantile(1));
+        GatewayMetrics.gauge("dapeng_mesh_event_loop_pending_micros", "Longest wait of a probe still queued on an event loop", EventLoopWatchdog::pendingMicros);
+    }
+
+    private EventLoopWatchdog() {
+    }
+
+    /**
+     * 开始检测 group 中所有 event loop, group 关闭后自动停止
+     */
+    public static void start(EventLoopGroup group) {
+        if (!Boolean.parseBoolean(SysEnvUtil.LOOP_WATCHDOG_ENABLE) || INTERVAL_MILLIS <= 0) {
+            return;
+        }
+        List<LoopProbe> probes = new ArrayList<>();
+        for (EventExecutor executor : group) {
+            probes.add(new LoopProbe(executor));
+        }
+        PROBES.addAll(probes);
+
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(new DefaultThreadFactory("dapeng-mesh-loop-watchdog", true));
+        timer.scheduleWithFixedDelay(() -> {
+            if (group.isShuttingDown()) {
+                PROBES.removeAll(probes);
+                timer.shutdown();
+                return;
+            }
+            for (LoopProbe probe : probes) {
+                probe.tick();
+            }
+        }, INTERVAL_MILLIS, INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        logger.info("event loop watchdog started, loops: {}, threshold: {}ms", probes.size(), TimeUnit.NANOSECONDS.toMillis(THRESHOLD_NANOS));
+    }
+
+    private static long lagQuantile(double quantile) {
+        LogHistogram merged = new LogHistogram();
+        for (LoopProbe probe : PROBES) {
+            merged.merge(probe.lag);
+        }
+        return merged.count() == 0 ? 0 : merged.valueAtQuantile(quantile);
+    }
+
+    private static long pendingMicros() {
+        long now = System.nanoTime();
+        long max = 0;
+        for (LoopProbe probe : PROBES) {
+            long submitted = probe.submittedNanos;
+            if (submitted != 0) {
+                max = Math.max(max, now - submitted);
+            }
+        }
+        return TimeUnit.NANOSECONDS.toMicros(max);
+    }
+
+    private static final class LoopProbe implements Runnable {
+        private final EventExecutor executor;
+        /**
+         * 只由 event loop 线程写入
+         */
+        private final LogHistogram lag = new LogHistogram();
+
+        private volatile Thread thread;
+        /**
+         * 未执行的探测任务的提交时间, 没有时为 0
+         */
+        private volatile long submittedNanos;
+        /**
+         * 本次阻塞是否已打印, 只由看门狗线程读写
+         */
+        private boolean reported;
+
+        private LoopProbe(EventExecutor executor) {
+            this.executor = executor;
+        }
+
+        /**
+         * 看门狗线程调用
+         */
+        private void tick() {
+            long now = System.nanoTime();
+            long submitted = submittedNanos;
+            if (submitted != 0) {
+                if (!reported && now - submitted > THRESHOLD_NANOS) {
+                    reported = true;
+                    report(now - submitted);
+                }
+                return;
+            }
+            reported = false;
+            submittedNanos = now;
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                // event loop 已关闭
+                submittedNanos = 0;
+            }
+        }
+
+        /**
+         * event loop 线程执行
+         */
+        @Override
+        public void run() {
+            long waited = System.nanoTime() - submittedNanos;
+            if (thread == null) {
+                thread = Thread.currentThread();
+            }
+            lag.record(TimeUnit.NANOSECONDS.toMicros(waited));
+            if (waited > THRESHOLD_NANOS) {
+                STALLS.increment();
+                STALL_MILLIS.add(TimeUnit.NANOSECONDS.toMillis(waited));
+            }
+            submittedNanos = 0;
+        }
+
+        private void report(long waitedNanos) {
+            Thread loopThread = thread;
+            if (loopThread == null) {
+                logger.warn("event loop blocked for more than {}ms", TimeUnit.NANOSECONDS.toMillis(waitedNanos));
+                return;
+            }
+            StackTraceElement[] stack = loopThread.getStackTrace();
+            StringBuilder trace = new StringBuilder(2048);
+            for (int i = 0; i < stack.length && i < MAX_STACK_DEPTH; i++) {
+                trace.append("\n\tat ").append(stack[i]);
+            }
+            if (stack.length > MAX_STACK_DEPTH) {
+                trace.append("\n\t...");
+            }
+            logger.warn("event loop [{}] blocked for more than {}ms, stack:{}", loopThread.getName(), TimeUnit.NANOSECONDS.toMillis(waitedNanos), trace);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.github.dapeng.gateway.netty;
+
+import com.github.dapeng.gateway.netty.handler.AuthenticationHandler;
+import com.github.dapeng.gateway.netty.handler.HttpRequestHandler;
+import com.github.dapeng.gateway.netty.handler.ServerProcessHandler;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.handler.codec.http.HttpRequestDecoder;
+import io.netty.handler.codec.http.HttpResponseEncoder;
+import io.netty.handler.codec.http2.Http2FrameCodecBuilder;
+import io.netty.handler.codec.http2.Http2MultiplexHandler;
+import io.netty.handler.codec.http2.Http2StreamFrameToHttpObjectCodec;
+import io.netty.handler.ssl.ApplicationProtocolNames;
+import io.netty.handler.ssl.ApplicationProtocolNegotiationHandler;
+
+/**
+ * 网关连接的 pipeline, 服务端连接和启动预热使用的 EmbeddedChannel 共用
+ *
+ * @author agent 2026.10.19
+ */
+public class GatewayChannelInitializer extends ChannelInitializer<Channel> {
+    // sharable handler
+    private final HttpRequestHandler httpRequestHandler = new HttpRequestHandler();
+    private final ServerProcessHandler serverProcessHandler = new ServerProcessHandler();
+    private final ConnectionGovernor connectionGovernor = new ConnectionGovernor();
+    private final AuthenticationHandler authenticationHandler;
+    private final boolean tls;
+
+    /**
+     * @param authentication 是否鉴权
+     */
+    public GatewayChannelInitializer(boolean authentication) {
+        this(authentication, false);
+    }
+
+    /**
+     * @param authentication 是否鉴权
+     * @param tls            是否终止 TLS, 需要先调用 {@link TlsContext#start()}
+     */
+    public GatewayChannelInitializer(boolean authentication, boolean tls) {
+        this.authenticationHandler = authentication ? new AuthenticationHandler() : null;
+        this.tls = tls;
+    }
+
+    @Override
+    protected void initChannel(Channel ch) throws Exception {
+        ConnectionDrainer.register(ch);
+        ChannelPipeline ph = ch.pipeline();
+        // 连接数限制及空闲连接关闭
+        if (ConnectionGovernor.idleDetection()) {
+            ph.addLast("idleState", ConnectionGovernor.newIdleStateHandler());
+        }
+        ph.addLast("connectionGovernor", connectionGovernor);
+
+        if (!tls) {
+            addHttp1Handlers(ph);
+            return;
+        }
+        ph.addLast("ssl", TlsContext.newHandler(ch.alloc()));
+        if (!TlsContext.h2()) {
+            addHttp1Handlers(ph);
+            return;
+        }
+        // 握手完成后根据 ALPN 结果添加 http/1.1 或 h2 的 handler
+        ph.addLast("alpn", new ApplicationProtocolNegotiationHandler(ApplicationProtocolNames.HTTP_1_1) {
+            @Override
+            protected void configurePipeline(ChannelHandlerContext ctx, String protocol) {
+                if (ApplicationProtocolNames.HTTP_2.equals(protocol)) {
+                    addHttp2Handlers(ctx.pipeline());
+                } else {
+                    addHttp1Handlers(ctx.pipeline());
+                }
+            }
+        });
+    }
+
+    private void addHttp1Handlers(ChannelPipeline ph) {
+        //处理http服务的关键handler
+        ph.addLast("encoder", new HttpResponseEncoder());
+        ph.addLast("decoder", new HttpRequestDecoder());
+        addRequestHandlers(ph);
+    }
+
+    /**
+     * 每个 h2 stream 是一个子 channel, 转换成 http/1.1 的请求和响应后复用同样的 handler
+     */
+    private void addHttp2Handlers(ChannelPipeline ph) {
+        ph.addLast("h2Codec", Http2FrameCodecBuilder.forServer().build());
+        ph.addLast("h2Multiplex", new Http2MultiplexHandler(new ChannelInitializer<Channel>() {
+            @Override
+            protected void initChannel(Channel stream) {
+                ChannelPipeline sp = stream.pipeline();
+                sp.addLast("h2ToHttp", new Http2StreamFrameToHttpObjectCodec(true));
+                addRequestHandlers(sp);
+            }
+        }));
+    }
+
+    private void addRequestHandlers(ChannelPipeline ph) {
+        // 按路由限制请求体, 超出时不读取请求体
+        ph.addLast("aggregator", new BodyLimitAggregator());
+        // 服务端业务逻辑
+        ph.addLast("requestHandler", httpRequestHandler);
+
+        if (authenticationHandler != null) {
+            ph.addLast("authenticationHandler", authenticationHandler);
+        }
+        ph.addLast("serverHandler", serverProcessHandler);
+    }
+}
@@ -0,0 +1,159 @@
+package com.github.dapeng.gateway.netty;
+
+import com.github.dapeng.gateway.netty.request.RequestContext;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 未完成请求跟踪.
+ * <p>
+ * 计数按线程分散到多个带填充的槽位, 每个槽位分别累加 "开始" 和 "结束" 两个单调计数, 避免所有 worker 线程争用同一个计数器.
+ * 请求可能在 A 线程开始、B 线程结束, 所以只有总和有意义: 先读所有 "结束" 再读所有 "开始", 两者相等即说明此刻没有未完成请求.
+ * <p>
+ * 关闭时调用 {@link #awaitDrained(long, TimeUnit)}, 最后一个请求结束时直接唤醒等待线程, 无需轮询.
+ *
+ * @author agent 2026.10.19
+ */
+public class InFlightTracker {
+    /**
+     * 每个槽位占 16 个 long(128 字节), 开始计数在偏移 0, 结束计数在偏移 8, 避免伪共享
+     */
+    private static final int STRIDE = 16;
+    private static final int ENDED_OFFSET = 8;
+
+    private static final int MAX_SERVICES = 1024;
+    private static final String OTHER = "other";
+
+    private final int mask;
+    private final AtomicLongArray cells;
+
+    /**
+     * 每个服务正在进行的后端调用数
+     */
+    private final ConcurrentHashMap<String, LongAdder> services = new ConcurrentHashMap<>();
+
+    private final Object drainMonitor = new Object();
+    private volatile boolean draining = false;
+
+    public InFlightTracker() {
+        this(Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    public InFlightTracker(int stripes) {
+        int size = Integer.highestOneBit(Math.max(stripes - 1, 1)) << 1;
+        this.mask = size - 1;
+        this.cells = new AtomicLongArray(size * STRIDE);
+    }
+
+    /**
+     * 收到请求
+     */
+    public void begin() {
+        cells.getAndIncrement(stripe() * STRIDE);
+    }
+
+    /**
+     * 请求已响应, 同一个请求只计一次
+     */
+    public void end(RequestContext context) {
+        if (context == null || context.completed()) {
+            return;
+        }
+        context.completed(true);
+        cells.getAndIncrement(stripe() * STRIDE + ENDED_OFFSET);
+        if (draining && isDrained()) {
+            synchronized (drainMonitor) {
+                drainMonitor.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * 开始调用后端服务
+     */
+    public void beginService(String service) {
+        serviceCounter(service).increment();
+    }
+
+    /**
+     * 后端服务返回
+     */
+    public void endService(String service) {
+        serviceCounter(service).decrement();
+    }
+
+    /**
+     * 当前未完成请求数
+     */
+    public long inFlight() {
+        long ended = sum(ENDED_OFFSET);
+        return sum(0) - ended;
+    }
+
+    /**
+     * 各服务正在进行的后端调用数, 只返回不为 0 的服务
+     */
+    public Map<String, Long> inFlightByService() {
+        Map<String, Long> result = new TreeMap<>();
+        services.forEach((service, counter) -> {
+            long count = counter.sum();
+            if (count != 0) {
+                result.put(service, count);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 等待所有未完成请求结束
+     *
+     * @return 超时仍有未完成请求时返回 false
+     */
+    public boolean awaitDrained(long timeout, TimeUnit unit) throws InterruptedException {
+        draining = true;
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (drainMonitor) {
+            while (!isDrained()) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(drainMonitor, remaining);
+            }
+        }
+        return true;
+    }
+
+    private boolean isDrained() {
+        // 必须先读结束计数, 再读开始计数
+        long ended = sum(ENDED_OFFSET);
+        long begun = sum(0);
+        return begun == ended;
+    }
+
+    private long sum(int offset) {
+        long sum = 0;
+        for (int i = 0; i <= mask; i++) {
+            sum += cells.get(i * STRIDE + offset);
+        }
+        return sum;
+    }
+
+    private int stripe() {
+        long id = Thread.currentThread().getId();
+        return (int) (id ^ (id >>> 16)) & mask;
+    }
+
+    private LongAdder serviceCounter(String service) {
+        LongAdder counter = services.get(service);
+        if (counter == null) {
+            counter = services.computeIfAbsent(services.size() < MAX_SERVICES ? service : OTHER, k -> new LongAdder());
+        }
+        return counter;
+    }
+}
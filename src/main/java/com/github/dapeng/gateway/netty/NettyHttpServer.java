@@ -3,20 +3,14 @@ package com.github.dapeng.gateway.netty;
 import com.github.dapeng.gateway.http.GetUrlController;
 import com.github.dapeng.gateway.http.HttpProcessorUtils;
 import com.github.dapeng.gateway.http.MeshHealthStatus;
-import com.github.dapeng.gateway.netty.handler.AuthenticationHandler;
-import com.github.dapeng.gateway.netty.handler.HttpRequestHandler;
-import com.github.dapeng.gateway.netty.handler.ServerProcessHandler;
+import com.github.dapeng.gateway.log.AccessLog;
 import com.github.dapeng.gateway.util.Constants;
 import com.github.dapeng.gateway.util.SysEnvUtil;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.channel.*;
 import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
-import io.netty.handler.codec.http.HttpObjectAggregator;
-import io.netty.handler.codec.http.HttpRequestDecoder;
-import io.netty.handler.codec.http.HttpResponseEncoder;
 import io.netty.util.concurrent.DefaultThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -47,6 +41,12 @@ public class NettyHttpServer {
     private EventLoopGroup bossGroup;
     private EventLoopGroup workerGroup;
 
+    private volatile Channel serverChannel;
+    /**
+     * 由 shutdownHook 负责关闭 eventLoopGroup, 此时 start() 不再关闭
+     */
+    private volatile boolean shuttingDown = false;
+
 
     public NettyHttpServer(int port) {
         this.port = port > 0 ? port : 0;
@@ -59,51 +59,38 @@ public class NettyHttpServer {
         // eventGroup
         bossGroup = new NioEventLoopGroup(1, new DefaultThreadFactory("netty-server-boss-group", Boolean.TRUE));
         workerGroup = new NioEventLoopGroup(Constants.DEFAULT_IO_THREADS, new DefaultThreadFactory("netty-server-worker-group", Boolean.TRUE));
-
-        // sharable handler
-        HttpRequestHandler httpRequestHandler = new HttpRequestHandler();
-        ServerProcessHandler serverProcessHandler = new ServerProcessHandler();
-
-        AuthenticationHandler authenticationHandler = Boolean.parseBoolean(SysEnvUtil.OPEN_AUTH_ENABLE) ? new AuthenticationHandler() : null;
+        // worker 线程阻塞检测
+        EventLoopWatchdog.start(workerGroup);
 
         try {
+            boolean tls = TlsContext.enabled();
+            if (tls) {
+                TlsContext.start();
+            }
             ServerBootstrap bootstrap = new ServerBootstrap();
             bootstrap
                     .group(bossGroup, workerGroup)
                     .channel(NioServerSocketChannel.class)
-                    .childHandler(new ChannelInitializer<SocketChannel>() {
-                        @Override
-                        protected void initChannel(SocketChannel ch) throws Exception {
-                            ChannelPipeline ph = ch.pipeline();
-                            //处理http服务的关键handler
-                            ph.addLast("encoder", new HttpResponseEncoder());
-                            ph.addLast("decoder", new HttpRequestDecoder());
-                            ph.addLast("aggregator", new HttpObjectAggregator(10 * 1024 * 1024));
-                            // 服务端业务逻辑
-                            ph.addLast("requestHandler", httpRequestHandler);
-
-                            if (Boolean.parseBoolean(SysEnvUtil.OPEN_AUTH_ENABLE)) {
-                                ph.addLast("authenticationHandler", authenticationHandler);
-                            }
-                            ph.addLast("serverHandler", serverProcessHandler);
-                        }
-
-                    })
+                    .childHandler(new GatewayChannelInitializer(Boolean.parseBoolean(SysEnvUtil.OPEN_AUTH_ENABLE), tls))
                     .option(ChannelOption.SO_BACKLOG, 1024)
                     .childOption(ChannelOption.SO_KEEPALIVE, Boolean.TRUE)
                     .childOption(ChannelOption.TCP_NODELAY, Boolean.TRUE)
-                    .childOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT);
+                    .childOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+                    .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, ConnectionGovernor.writeBufferWaterMark());
 
 
             ChannelFuture future = bootstrap.bind(port).sync();
+            serverChannel = future.channel();
 
             logger.info("NettyServer start listen at {}", port);
             future.channel().closeFuture().sync();
         } catch (Exception e) {
             logger.error(e.getMessage(), e);
         } finally {
-            bossGroup.shutdownGracefully();
-            workerGroup.shutdownGracefully();
+            if (!shuttingDown) {
+                bossGroup.shutdownGracefully();
+                workerGroup.shutdownGracefully();
+            }
         }
     }
 
@@ -111,58 +98,71 @@ public class NettyHttpServer {
     public void registerShutdownHook() {
         if (this.shutdownHook == null) {
             // No shutdown hook registered yet.
-            this.shutdownHook = new Thread(() -> {
-                synchronized (startupShutdownMonitor) {
-                    GetUrlController.status = MeshHealthStatus.YELLOW;
-                    logger.info("sleep 15s, wait nginx health check remove this gateway");
-                    try {
-                        TimeUnit.SECONDS.sleep(15);
-                    } catch (InterruptedException ignored) {
-                    }
-                    logger.info("ready to shutdown this gateway!");
-                    //重试，保证请求处理完成
-                    retryCompareCounter();
-                    if (bossGroup != null) {
-                        bossGroup.shutdownGracefully();
-                    }
-                    if (workerGroup != null) {
-                        workerGroup.shutdownGracefully();
-                    }
-                    logger.info("end to shutdown this gateway!");
-                }
-            }, "netty-server-shutdownHook-thread");
+            this.shutdownHook = new Thread(this::shutdown, "netty-server-shutdownHook-thread");
             Runtime.getRuntime().addShutdownHook(this.shutdownHook);
         }
     }
 
-    public void retryCompareCounter() {
-        if (logger.isDebugEnabled()) {
-            logger.debug(getClass().getSimpleName() + "Retry to ensure requests processing is complete");
+    /**
+     * 优雅关闭: 摘除流量 -> 停止监听 -> 等待处理中的请求 -> 关闭线程池, 由 shutdownHook 调用
+     */
+    public void shutdown() {
+        synchronized (startupShutdownMonitor) {
+            long begin = System.currentTimeMillis();
+            shuttingDown = true;
+            // 此后健康检查失败, 所有响应带 Connection: close
+            GetUrlController.status(MeshHealthStatus.YELLOW);
+            ConnectionDrainer.closeIdleConnections();
+
+            logger.info("wait nginx health check remove this gateway");
+            try {
+                ConnectionDrainer.awaitLoadBalancer(Integer.parseInt(SysEnvUtil.SHUTDOWN_HEALTH_CHECK_FAILURES),
+                        Long.parseLong(SysEnvUtil.SHUTDOWN_LB_TIMEOUT), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (serverChannel != null) {
+                serverChannel.close().syncUninterruptibly();
+                logger.info("stop listening at {}", port);
+            }
+            // 负载均衡摘除期间新建的连接
+            ConnectionDrainer.closeIdleConnections();
+
+            logger.info("ready to shutdown this gateway!");
+            //等待请求处理完成
+            awaitInFlightRequests();
+            if (bossGroup != null) {
+                bossGroup.shutdownGracefully();
+            }
+            if (workerGroup != null) {
+                workerGroup.shutdownGracefully();
+            }
+            AccessLog.shutdown();
+            logger.info("end to shutdown this gateway! cost " + (System.currentTimeMillis() - begin) + "ms");
         }
+    }
 
-        logger.warn("尚余[" + HttpProcessorUtils.getRequestCounter().intValue() + "]个请求还未处理..."
-                + (HttpProcessorUtils.getRequestCounter().intValue() > 0 ? "现在最多等待[" + SOA_SHUTDOWN_TIMEOUT + "ms]" : ""));
-
-        long sleepTime = 2000;
-        long retry = SOA_SHUTDOWN_TIMEOUT / sleepTime;
+    /**
+     * 等待未完成请求处理完成, 最后一个请求结束时立即返回, 最多等待 SOA_SHUTDOWN_TIMEOUT
+     */
+    public void awaitInFlightRequests() {
+        InFlightTracker tracker = HttpProcessorUtils.getInFlightTracker();
+        long inFlight = tracker.inFlight();
+        if (inFlight <= 0) {
+            return;
+        }
+        logger.warn("尚余[" + inFlight + "]个请求还未处理, 现在最多等待[" + SOA_SHUTDOWN_TIMEOUT + "ms], 各服务后端调用: " + tracker.inFlightByService());
 
-        do {
-            if (HttpProcessorUtils.getRequestCounter().intValue() <= 0) {
-                break;
+        long begin = System.currentTimeMillis();
+        try {
+            if (tracker.awaitDrained(SOA_SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                logger.info("all requests completed in " + (System.currentTimeMillis() - begin) + "ms");
             } else {
-                try {
-                    if (logger.isDebugEnabled()) {
-                        logger.debug("requests haven't been processed  completely, sleep " + sleepTime + "ms");
-                    }
-                    Thread.sleep(sleepTime);
-                } catch (InterruptedException e) {
-                    logger.error(e.getMessage(), e);
-                }
+                logger.warn("等待[" + SOA_SHUTDOWN_TIMEOUT + "ms]之后，尚余[" + tracker.inFlight() + "]个请求还未处理完，gateway即将关闭... 各服务后端调用: " + tracker.inFlightByService());
             }
-        } while (--retry > 0);
-
-        if (HttpProcessorUtils.getRequestCounter().intValue() != 0) {
-            logger.warn(retry + "次等待共[" + SOA_SHUTDOWN_TIMEOUT + "ms]之后，尚余[" + HttpProcessorUtils.getRequestCounter().intValue() + "]个请求还未处理完，gateway即将关闭...");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error(e.getMessage(), e);
         }
     }
 }
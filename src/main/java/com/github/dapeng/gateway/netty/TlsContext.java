@@ -0,0 +1,185 @@
+package com.github.dapeng.gateway.netty;
+
+import com.github.dapeng.gateway.metrics.GatewayMetrics;
+import com.github.dapeng.gateway.util.SysEnvUtil;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.handler.codec.http2.Http2SecurityUtil;
+import io.netty.handler.ssl.*;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 网关直接终止 TLS.
+ * <p>
+ * 有 netty-tcnative 时使用 OpenSSL, 否则使用 JDK. 服务端会话缓存用于会话恢复; OpenSSL 另外支持会话票据,
+ * 配置共享的票据密钥文件后多个网关之间也能恢复会话(JDK 8 的服务端不支持票据, 只使用会话缓存).
+ * provider 支持 ALPN 时协商 h2/http1.1.
+ * <p>
+ * 定期检查证书和私钥文件, 变化后重建 {@link SslContext}, 之后的新连接使用新证书, 已有连接不受影响; 重建失败时继续使用旧证书.
+ *
+ * @author agent 2026.10.19
+ */
+public final class TlsContext {
+    private static final Logger logger = LoggerFactory.getLogger(TlsContext.class);
+
+    private static final int TICKET_KEY_LENGTH = 48;
+
+    private static final LongAdder HANDSHAKES = new LongAdder();
+    private static final LongAdder HANDSHAKE_FAILURES = new LongAdder();
+    private static final LongAdder RELOADS = new LongAdder();
+
+    private static volatile SslContext context;
+    private static volatile long certVersion;
+
+    private TlsContext() {
+    }
+
+    public static boolean enabled() {
+        return Boolean.parseBoolean(SysEnvUtil.TLS_ENABLE);
+    }
+
+    /**
+     * 加载证书, 并开始定期检查证书变化; 证书无法加载时抛出异常, 网关不启动
+     */
+    public static synchronized void start() {
+        if (context != null) {
+            return;
+        }
+        File cert = new File(SysEnvUtil.TLS_CERT);
+        File key = new File(SysEnvUtil.TLS_KEY);
+        SslProvider provider = provider(SysEnvUtil.TLS_PROVIDER);
+        try {
+            certVersion = version(cert, key);
+            context = build(cert, key, provider, Boolean.parseBoolean(SysEnvUtil.TLS_H2_ENABLE));
+        } catch (Exception e) {
+            throw new IllegalStateException("load tls certificate failed, cert: " + cert + ", key: " + key, e);
+        }
+        logger.info("tls enabled, provider: {}, alpn: {}, cert: {}", provider, context.applicationProtocolNegotiator().protocols(), cert);
+
+        GatewayMetrics.counter("dapeng_mesh_tls_handshakes_total", "Completed tls handshakes", HANDSHAKES::sum);
+        GatewayMetrics.counter("dapeng_mesh_tls_handshake_failures_total", "Failed tls handshakes", HANDSHAKE_FAILURES::sum);
+        GatewayMetrics.counter("dapeng_mesh_tls_reloads_total", "Certificate reloads", RELOADS::sum);
+
+        long interval = Long.parseLong(SysEnvUtil.TLS_RELOAD_INTERVAL);
+        if (interval > 0) {
+            ScheduledExecutorService reloader = Executors.newSingleThreadScheduledExecutor(new DefaultThreadFactory("dapeng-mesh-tls-reload", true));
+            reloader.scheduleWithFixedDelay(() -> reloadIfChanged(cert, key, provider), interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 新连接的 SslHandler
+     */
+    public static SslHandler newHandler(ByteBufAllocator alloc) {
+        SslHandler handler = context.newHandler(alloc);
+        handler.handshakeFuture().addListener(f -> {
+            if (f.isSuccess()) {
+                HANDSHAKES.increment();
+            } else {
+                HANDSHAKE_FAILURES.increment();
+                if (logger.isDebugEnabled()) {
+                    logger.debug("tls handshake failed: " + f.cause().getMessage());
+                }
+            }
+        });
+        return handler;
+    }
+
+    /**
+     * 当前证书是否可以通过 ALPN 协商 h2
+     */
+    public static boolean h2() {
+        return context.applicationProtocolNegotiator().protocols().contains(ApplicationProtocolNames.HTTP_2);
+    }
+
+    static SslProvider provider(String name) {
+        switch (name.toLowerCase()) {
+            case "openssl":
+                return SslProvider.OPENSSL;
+            case "jdk":
+                return SslProvider.JDK;
+            default:
+                return OpenSsl.isAvailable() ? SslProvider.OPENSSL : SslProvider.JDK;
+        }
+    }
+
+    static SslContext build(File cert, File key, SslProvider provider, boolean h2) throws IOException {
+        SslContextBuilder builder = SslContextBuilder.forServer(cert, key)
+                .sslProvider(provider)
+                .sessionCacheSize(Long.parseLong(SysEnvUtil.TLS_SESSION_CACHE_SIZE))
+                .sessionTimeout(Long.parseLong(SysEnvUtil.TLS_SESSION_TIMEOUT));
+        if (h2 && SslProvider.isAlpnSupported(provider)) {
+            builder.ciphers(Http2SecurityUtil.CIPHERS, SupportedCipherSuiteFilter.INSTANCE)
+                    .applicationProtocolConfig(new ApplicationProtocolConfig(
+                            ApplicationProtocolConfig.Protocol.ALPN,
+                            ApplicationProtocolConfig.SelectorFailureBehavior.NO_ADVERTISE,
+                            ApplicationProtocolConfig.SelectedListenerFailureBehavior.ACCEPT,
+                            ApplicationProtocolNames.HTTP_2,
+                            ApplicationProtocolNames.HTTP_1_1));
+        }
+        SslContext sslContext = builder.build();
+
+        OpenSslSessionTicketKey[] ticketKeys = ticketKeys(SysEnvUtil.TLS_TICKET_KEY_FILE);
+        if (ticketKeys.length > 0) {
+            if (sslContext.sessionContext() instanceof OpenSslSessionContext) {
+                ((OpenSslSessionContext) sslContext.sessionContext()).setTicketKeys(ticketKeys);
+            } else {
+                logger.warn("session ticket keys are only supported by the openssl provider, ignored");
+            }
+        }
+        return sslContext;
+    }
+
+    private static void reloadIfChanged(File cert, File key, SslProvider provider) {
+        long version = version(cert, key);
+        if (version == certVersion) {
+            return;
+        }
+        try {
+            SslContext reloaded = build(cert, key, provider, Boolean.parseBoolean(SysEnvUtil.TLS_H2_ENABLE));
+            context = reloaded;
+            certVersion = version;
+            RELOADS.increment();
+            logger.info("tls certificate reloaded, cert: {}", cert);
+        } catch (Throwable e) {
+            // 证书和私钥可能还没有全部写完, 下次再试
+            logger.error("reload tls certificate failed, keep using the current one: " + e.getMessage(), e);
+        }
+    }
+
+    private static long version(File cert, File key) {
+        return ((cert.lastModified() * 31 + cert.length()) * 31 + key.lastModified()) * 31 + key.length();
+    }
+
+    /**
+     * 每 48 字节一个密钥: 16 字节名称, 16 字节 hmac 密钥, 16 字节 aes 密钥
+     */
+    private static OpenSslSessionTicketKey[] ticketKeys(String file) throws IOException {
+        if (file == null || file.isEmpty()) {
+            return new OpenSslSessionTicketKey[0];
+        }
+        byte[] bytes = Files.readAllBytes(new File(file).toPath());
+        if (bytes.length == 0 || bytes.length % TICKET_KEY_LENGTH != 0) {
+            throw new IOException("session ticket key file must contain n * " + TICKET_KEY_LENGTH + " bytes: " + file);
+        }
+        OpenSslSessionTicketKey[] keys = new OpenSslSessionTicketKey[bytes.length / TICKET_KEY_LENGTH];
+        for (int i = 0; i < keys.length; i++) {
+            int offset = i * TICKET_KEY_LENGTH;
+            keys[i] = new OpenSslSessionTicketKey(
+                    Arrays.copyOfRange(bytes, offset, offset + 16),
+                    Arrays.copyOfRange(bytes, offset + 16, offset + 32),
+                    Arrays.copyOfRange(bytes, offset + 32, offset + 48));
+        }
+        return keys;
+    }
+}
@@ -4,8 +4,10 @@ import com.github.dapeng.core.InvocationContextImpl;
 import com.github.dapeng.core.SoaCode;
 import com.github.dapeng.core.SoaException;
 import com.github.dapeng.core.helper.SoaSystemEnvProperties;
+import com.github.dapeng.gateway.auth.ReplayGuard;
 import com.github.dapeng.gateway.auth.WhiteListHandler;
 import com.github.dapeng.gateway.http.HttpProcessorUtils;
+import com.github.dapeng.gateway.metrics.RequestEvents;
 import com.github.dapeng.gateway.netty.request.RequestContext;
 import com.github.dapeng.gateway.util.*;
 import io.netty.channel.ChannelHandler;
@@ -17,7 +19,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Optional;
-import java.util.Set;
 import java.util.regex.Pattern;
 
 /**
@@ -26,6 +27,8 @@ import java.util.regex.Pattern;
 @ChannelHandler.Sharable
 public class AuthenticationHandler extends ChannelInboundHandlerAdapter {
     private static Logger logger = LoggerFactory.getLogger(AuthenticationHandler.class);
+
+    private static final boolean OPEN_AUTH_ENABLE = Boolean.parseBoolean(SysEnvUtil.OPEN_AUTH_ENABLE);
     private static final Pattern PATTERN = Pattern.compile("\"");
 
     @Override
@@ -35,20 +38,25 @@ public class AuthenticationHandler extends ChannelInboundHandlerAdapter {
             // POST FIRST
             if (HttpMethod.POST.equals(context.httpMethod())) {
                 //鉴权
+                Object authEvent = RequestEvents.beginAuth();
                 try {
                     authSecret(context, ctx);
+                    context.authNanos(System.nanoTime());
+                    RequestEvents.endAuth(authEvent, context, true);
                 } catch (SoaException e) {
-                    HttpProcessorUtils.sendHttpResponse(ctx, HttpProcessorUtils.wrapExCodeResponse(context.requestUrl(), e), context.request(), HttpResponseStatus.OK);
+                    RequestEvents.endAuth(authEvent, context, false);
+                    HttpProcessorUtils.sendHttpResponse(ctx, HttpProcessorUtils.wrapExCodeResponse(context.requestUrl(), e), context, HttpResponseStatus.OK);
                     return;
                 } catch (Exception e) {
-                    HttpProcessorUtils.sendHttpResponse(ctx, HttpProcessorUtils.wrapErrorResponse(DapengMeshCode.AuthSecretError), context.request(), HttpResponseStatus.OK);
+                    RequestEvents.endAuth(authEvent, context, false);
+                    HttpProcessorUtils.sendErrorResponse(ctx, DapengMeshCode.AuthSecretError, context, HttpResponseStatus.OK);
                     return;
                 }
             }
             super.channelRead(ctx, context);
         } catch (Exception e) {
             logger.error("网关处理请求失败: " + e.getMessage(), e);
-            HttpProcessorUtils.sendHttpResponse(ctx, HttpProcessorUtils.wrapErrorResponse(DapengMeshCode.ProcessReqFailed), null, HttpResponseStatus.INTERNAL_SERVER_ERROR);
+            HttpProcessorUtils.sendErrorResponseAndClose(ctx, DapengMeshCode.ProcessReqFailed, context, HttpResponseStatus.INTERNAL_SERVER_ERROR);
         }
     }
 
@@ -59,9 +67,8 @@ public class AuthenticationHandler extends ChannelInboundHandlerAdapter {
      * @param context request 请求上下文
      */
     private void authSecret(RequestContext context, ChannelHandlerContext ctx) throws Exception {
-        if (Boolean.valueOf(SysEnvUtil.OPEN_AUTH_ENABLE)) {
-            Set<String> list = WhiteListHandler.getServiceWhiteList();
-            if (!list.contains(context.service().get())) {
+        if (OPEN_AUTH_ENABLE) {
+            if (!WhiteListHandler.contains(context.service().get())) {
                 throw new SoaException("Err-GateWay-006", "非法请求,请联系管理员!");
             }
         }
@@ -77,6 +84,8 @@ public class AuthenticationHandler extends ChannelInboundHandlerAdapter {
         if (!secret.isPresent() && !secret2.isPresent()) {
             throw new SoaException(DapengMeshCode.AuthSecretEx);
         }
+        // 过期及重放的请求不再调用鉴权服务
+        ReplayGuard.check(apiKey.get(), timestamp.get(), secret.orElse(null), secret2.orElse(null));
 
         fillInvocationProxy(context, ctx);
         String remoteIp = InvokeUtil.getIpAddress(context.request(), ctx);
@@ -103,6 +112,7 @@ public class AuthenticationHandler extends ChannelInboundHandlerAdapter {
             logger.error(e.getMessage(), e);
             throw e;
         }
+        ReplayGuard.accepted(apiKey.get(), timestamp.get(), secret.orElse(null), secret2.orElse(null));
     }
 
     /**
@@ -112,7 +122,7 @@ public class AuthenticationHandler extends ChannelInboundHandlerAdapter {
      * @param ctx     netty channel ctx
      * @return request json
      */
-    private String buildRequestJson(RequestContext context, ChannelHandlerContext ctx) {
+    String buildRequestJson(RequestContext context, ChannelHandlerContext ctx) {
         String apiKey = context.apiKey().get();
         String timestamp = context.timestamp().get();
         String parameter = context.parameter().get();
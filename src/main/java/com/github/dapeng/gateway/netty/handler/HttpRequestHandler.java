@@ -2,12 +2,18 @@ package com.github.dapeng.gateway.netty.handler;
 
 import com.github.dapeng.gateway.http.HttpProcessorUtils;
 import com.github.dapeng.gateway.http.match.UrlMappingResolver;
+import com.github.dapeng.gateway.log.TrafficCapture;
+import com.github.dapeng.gateway.metrics.RequestEvents;
+import com.github.dapeng.gateway.netty.ConnectionGovernor;
+import com.github.dapeng.gateway.netty.ConnectionState;
 import com.github.dapeng.gateway.netty.request.RequestContext;
 import com.github.dapeng.gateway.util.DapengMeshCode;
+import com.github.dapeng.gateway.warmup.PipelineWarmer;
 import io.netty.channel.*;
 import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -23,10 +29,26 @@ public class HttpRequestHandler extends SimpleChannelInboundHandler<FullHttpRequ
     public void channelRead0(ChannelHandlerContext ctx, FullHttpRequest request) throws Exception {
 
         //请求计数 +1
-        HttpProcessorUtils.getRequestCounter().incrementAndGet();
+        HttpProcessorUtils.getInFlightTracker().begin();
+        ConnectionState connection = ConnectionState.get(ctx.channel());
+        if (connection != null) {
+            int requests = connection.requestReceived();
+            // 达到单连接请求数上限, 本次响应后关闭连接
+            if (ConnectionGovernor.MAX_REQUESTS > 0 && requests >= ConnectionGovernor.MAX_REQUESTS) {
+                HttpUtil.setKeepAlive(request, false);
+            }
+            ConnectionGovernor.updateAutoRead(ctx.channel(), connection);
+        }
         RequestContext context = new RequestContext();
+        context.receiveNanos(System.nanoTime());
         context.request(request);
+        context.requestBytes(request.content().readableBytes());
+        context.warmUp(PipelineWarmer.isWarmUp(ctx.channel()));
         try {
+            // 采样录制, 用于回放
+            if (!context.warmUp()) {
+                TrafficCapture.capture(request);
+            }
             HttpMethod httpMethod = request.method();
             String url = request.uri();
 
@@ -41,10 +63,14 @@ public class HttpRequestHandler extends SimpleChannelInboundHandler<FullHttpRequ
                     logger.debug("For the time being, no message to log for Get-method");
                 }
             }
+            context.parsedNanos(System.nanoTime());
+            if (!context.warmUp()) {
+                RequestEvents.received(context);
+            }
             super.channelRead(ctx, context);
         } catch (Exception e) {
             logger.error("网关处理请求失败: " + e.getMessage(), e);
-            HttpProcessorUtils.sendHttpResponse(ctx, HttpProcessorUtils.wrapErrorResponse(DapengMeshCode.ProcessReqFailed), null, HttpResponseStatus.INTERNAL_SERVER_ERROR);
+            HttpProcessorUtils.sendErrorResponseAndClose(ctx, DapengMeshCode.ProcessReqFailed, context, HttpResponseStatus.INTERNAL_SERVER_ERROR);
         }
     }
 }
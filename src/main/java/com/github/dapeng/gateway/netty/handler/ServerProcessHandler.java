@@ -33,10 +33,10 @@ public class ServerProcessHandler extends SimpleChannelInboundHandler<RequestCon
             dispatchRequest(context, ctx);
         } catch (SoaException e) {
             logger.error("网关请求SoaException：" + e.getMessage());
-            HttpProcessorUtils.sendHttpResponse(ctx, HttpProcessorUtils.wrapExCodeResponse(e), null, HttpResponseStatus.INTERNAL_SERVER_ERROR);
+            HttpProcessorUtils.sendHttpResponseAndClose(ctx, HttpProcessorUtils.wrapExCodeResponse(e), context, HttpResponseStatus.INTERNAL_SERVER_ERROR);
         } catch (Exception e) {
             logger.error("网关处理请求失败: " + e.getMessage(), e);
-            HttpProcessorUtils.sendHttpResponse(ctx, HttpProcessorUtils.wrapErrorResponse(DapengMeshCode.ProcessReqFailed), null, HttpResponseStatus.INTERNAL_SERVER_ERROR);
+            HttpProcessorUtils.sendErrorResponseAndClose(ctx, DapengMeshCode.ProcessReqFailed, context, HttpResponseStatus.INTERNAL_SERVER_ERROR);
         }
     }
 
@@ -53,7 +53,7 @@ public class ServerProcessHandler extends SimpleChannelInboundHandler<RequestCon
             handlerGetAndHead(context, ctx);
             return;
         }
-        HttpProcessorUtils.sendHttpResponse(ctx, HttpProcessorUtils.wrapErrorResponse(DapengMeshCode.RequestTypeNotSupport), context.request(), HttpResponseStatus.OK);
+        HttpProcessorUtils.sendErrorResponse(ctx, DapengMeshCode.RequestTypeNotSupport, context, HttpResponseStatus.OK);
     }
 
 
@@ -61,8 +61,14 @@ public class ServerProcessHandler extends SimpleChannelInboundHandler<RequestCon
      * handler get 和 head 请求
      */
     private void handlerGetAndHead(RequestContext context, ChannelHandlerContext ctx) {
-        HttpResponseEntity entity = getHandler.handlerRequest(context);
-        HttpProcessorUtils.sendHttpResponse(ctx, entity, context);
+        getHandler.handlerRequest(context).whenComplete((entity, ex) -> {
+            if (ex != null) {
+                logger.error("网关处理请求失败: " + ex.getMessage(), ex);
+                HttpProcessorUtils.sendErrorResponseAndClose(ctx, DapengMeshCode.ProcessReqFailed, context, HttpResponseStatus.INTERNAL_SERVER_ERROR);
+                return;
+            }
+            HttpProcessorUtils.sendHttpResponse(ctx, entity, context);
+        });
     }
 
 
@@ -77,7 +83,7 @@ public class ServerProcessHandler extends SimpleChannelInboundHandler<RequestCon
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
         logger.error("网关handler exceptionCaught未知异常: " + cause.getMessage(), cause);
-        HttpProcessorUtils.sendHttpResponse(ctx, HttpProcessorUtils.wrapErrorResponse(DapengMeshCode.MeshUnknownError), null, HttpResponseStatus.INTERNAL_SERVER_ERROR);
+        HttpProcessorUtils.sendErrorResponseAndClose(ctx, DapengMeshCode.MeshUnknownError, null, HttpResponseStatus.INTERNAL_SERVER_ERROR);
         ctx.close();
     }
 }
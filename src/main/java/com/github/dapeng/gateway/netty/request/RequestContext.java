@@ -83,6 +83,51 @@ public class RequestContext {
      */
     private Set<Cookie> cookies;
 
+    /**
+     * 是否已经响应
+     */
+    private boolean completed;
+
+    /**
+     * 请求 body 字节数
+     */
+    private int requestBytes;
+
+    /**
+     * 启动预热发出的请求, 不计入指标、访问日志及录制
+     */
+    private boolean warmUp;
+
+    /**
+     * 收到请求, 以下各阶段时间均为 System.nanoTime(), 未经过该阶段时为 0
+     */
+    private long receiveNanos;
+    /**
+     * url 及参数解析完成
+     */
+    private long parsedNanos;
+    /**
+     * 鉴权完成
+     */
+    private long authNanos;
+    /**
+     * 发起后端调用
+     */
+    private long dispatchNanos;
+    /**
+     * 后端返回
+     */
+    private long backendNanos;
+    /**
+     * 开始写响应
+     */
+    private long writeNanos;
+
+    /**
+     * 后端调用的 sessionTid, 未调用后端时为 0
+     */
+    private long sessionTid;
+
 
     public FullHttpRequest request() {
         return request;
@@ -213,6 +258,86 @@ public class RequestContext {
         this.cookies = cookies;
     }
 
+    public boolean completed() {
+        return completed;
+    }
+
+    public void completed(boolean completed) {
+        this.completed = completed;
+    }
+
+    public long receiveNanos() {
+        return receiveNanos;
+    }
+
+    public void receiveNanos(long receiveNanos) {
+        this.receiveNanos = receiveNanos;
+    }
+
+    public int requestBytes() {
+        return requestBytes;
+    }
+
+    public void requestBytes(int requestBytes) {
+        this.requestBytes = requestBytes;
+    }
+
+    public boolean warmUp() {
+        return warmUp;
+    }
+
+    public void warmUp(boolean warmUp) {
+        this.warmUp = warmUp;
+    }
+
+    public long parsedNanos() {
+        return parsedNanos;
+    }
+
+    public void parsedNanos(long parsedNanos) {
+        this.parsedNanos = parsedNanos;
+    }
+
+    public long authNanos() {
+        return authNanos;
+    }
+
+    public void authNanos(long authNanos) {
+        this.authNanos = authNanos;
+    }
+
+    public long dispatchNanos() {
+        return dispatchNanos;
+    }
+
+    public void dispatchNanos(long dispatchNanos) {
+        this.dispatchNanos = dispatchNanos;
+    }
+
+    public long backendNanos() {
+        return backendNanos;
+    }
+
+    public void backendNanos(long backendNanos) {
+        this.backendNanos = backendNanos;
+    }
+
+    public long writeNanos() {
+        return writeNanos;
+    }
+
+    public void writeNanos(long writeNanos) {
+        this.writeNanos = writeNanos;
+    }
+
+    public long sessionTid() {
+        return sessionTid;
+    }
+
+    public void sessionTid(long sessionTid) {
+        this.sessionTid = sessionTid;
+    }
+
     public String argumentToString() {
         return arguments.entrySet().stream()
                 .map(argument -> "KV:[" + argument.getKey() + " -> " + argument.getValue() + "]")
@@ -0,0 +1,95 @@
+package com.github.dapeng.gateway.route;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.TreeSet;
+
+/**
+ * 不可变的一致性哈希环.
+ * <p>
+ * 每个实例在环上放 {@link #VIRTUAL_NODES} 个虚拟节点, 实例增减时只有约 1/n 的 key 换实例.
+ * 查找为一次 64 位哈希加一次二分查找, 不产生对象.
+ *
+ * @author agent 2026.10.19
+ */
+final class ConsistentHashRing {
+    static final int VIRTUAL_NODES = 160;
+
+    static final ConsistentHashRing EMPTY = new ConsistentHashRing(new String[0]);
+
+    /**
+     * 实例 ip:port, 已排序
+     */
+    private final String[] instances;
+    private final long[] points;
+    private final int[] owners;
+
+    private ConsistentHashRing(String[] instances) {
+        this.instances = instances;
+        int size = instances.length * VIRTUAL_NODES;
+        long[] hashes = new long[size];
+        int[] index = new int[size];
+        for (int i = 0; i < instances.length; i++) {
+            for (int v = 0; v < VIRTUAL_NODES; v++) {
+                hashes[i * VIRTUAL_NODES + v] = hash(instances[i] + "#" + v);
+                index[i * VIRTUAL_NODES + v] = i;
+            }
+        }
+        // 按哈希值排序, 同时调整 owners
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(hashes[a], hashes[b]));
+        this.points = new long[size];
+        this.owners = new int[size];
+        for (int i = 0; i < size; i++) {
+            points[i] = hashes[order[i]];
+            owners[i] = index[order[i]];
+        }
+    }
+
+    /**
+     * @param instances ip:port, 顺序无关
+     */
+    static ConsistentHashRing of(Collection<String> instances) {
+        return instances.isEmpty() ? EMPTY : new ConsistentHashRing(new TreeSet<>(instances).toArray(new String[0]));
+    }
+
+    /**
+     * @return key 对应的实例 ip:port, 环为空时返回 null
+     */
+    String select(String key) {
+        if (points.length == 0) {
+            return null;
+        }
+        int i = Arrays.binarySearch(points, hash(key));
+        if (i < 0) {
+            i = -i - 1;
+            if (i == points.length) {
+                i = 0;
+            }
+        }
+        return instances[owners[i]];
+    }
+
+    int size() {
+        return instances.length;
+    }
+
+    /**
+     * FNV-1a 后再做一次 fmix64, 让相近的 key 均匀散开
+     */
+    static long hash(String value) {
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h = (h ^ value.charAt(i)) * 0x100000001B3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
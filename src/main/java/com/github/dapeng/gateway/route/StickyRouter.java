@@ -0,0 +1,300 @@
+package com.github.dapeng.gateway.route;
+
+import com.github.dapeng.core.InvocationContext;
+import com.github.dapeng.core.helper.IPUtils;
+import com.github.dapeng.gateway.metrics.GatewayMetrics;
+import com.github.dapeng.gateway.netty.request.RequestContext;
+import com.github.dapeng.gateway.util.Constants;
+import com.github.dapeng.gateway.util.SysEnvUtil;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.WatchedEvent;
+import org.apache.zookeeper.Watcher;
+import org.apache.zookeeper.ZooKeeper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按请求 key 的一致性哈希粘性路由.
+ * <p>
+ * 对配置了策略的服务, 从请求中取出路由 key(cookie、url/表单参数或 json 请求体中的字段),
+ * 在该服务同版本存活实例组成的 {@link ConsistentHashRing} 上选出实例, 设置为 calleeIp/calleePort;
+ * 同一个门店、同一个商品的请求总落到同一个实例, 实例上的本地缓存才有效.
+ * 请求显式指定了 calleeIp 时不覆盖; 取不到 key 或没有存活实例时按默认负载均衡.
+ * <p>
+ * 存活实例来自 zookeeper 的服务运行时节点 {@link #RUNTIME_PATH}/服务名, 子节点为 ip:port:version:seq,
+ * 子节点变化时重建哈希环.
+ *
+ * @author agent 2026.10.19
+ */
+public final class StickyRouter {
+    private static final Logger logger = LoggerFactory.getLogger(StickyRouter.class);
+
+    static final String RUNTIME_PATH = "/soa/runtime/services";
+    private static final int SESSION_TIMEOUT = 30000;
+
+    private static final Map<String, Policy> POLICIES = parse(SysEnvUtil.STICKY_ROUTING);
+
+    /**
+     * 服务名 -> (版本 -> 哈希环)
+     */
+    private static final ConcurrentHashMap<String, Map<String, ConsistentHashRing>> RINGS = new ConcurrentHashMap<>();
+    /**
+     * 每个服务一个 watcher 对象, 重复注册时 zookeeper 按对象去重
+     */
+    private static final ConcurrentHashMap<String, Watcher> WATCHERS = new ConcurrentHashMap<>();
+
+    private static final ExecutorService RECONNECT = Executors.newSingleThreadExecutor(new DefaultThreadFactory("dapeng-mesh-sticky-routing", true));
+
+    private static final LongAdder ROUTED = new LongAdder();
+    private static final LongAdder NOT_ROUTED = new LongAdder();
+
+    private static volatile ZooKeeper zookeeper;
+
+    private StickyRouter() {
+    }
+
+    /**
+     * 连接 zookeeper 并跟踪已配置服务的实例, 没有配置策略时不做任何事
+     */
+    public static synchronized void start() {
+        if (POLICIES.isEmpty() || zookeeper != null) {
+            return;
+        }
+        GatewayMetrics.counter("dapeng_mesh_sticky_routed_total", "Requests pinned to an instance by sticky routing", ROUTED::sum);
+        GatewayMetrics.counter("dapeng_mesh_sticky_not_routed_total", "Sticky routing requests without key or live instance", NOT_ROUTED::sum);
+        connect();
+        logger.info("sticky routing enabled: {}", POLICIES);
+    }
+
+    /**
+     * 从请求中取出路由 key
+     *
+     * @return 服务未配置策略或请求中没有 key 时返回 null
+     */
+    public static String key(String service, RequestContext context, Map<String, String> cookies) {
+        Policy policy = POLICIES.get(service);
+        if (policy == null) {
+            return null;
+        }
+        String key = null;
+        switch (policy.source) {
+            case COOKIE:
+                key = cookies.get(policy.name);
+                break;
+            case PARAM:
+                key = context.arguments().get(policy.name);
+                break;
+            case BODY:
+                key = context.parameter().map(body -> jsonField(body, policy.name)).orElse(null);
+                break;
+            default:
+                break;
+        }
+        if (key == null || key.isEmpty()) {
+            NOT_ROUTED.increment();
+            return null;
+        }
+        return key;
+    }
+
+    /**
+     * 按 key 选出实例并设置到调用上下文
+     *
+     * @return 是否设置了实例
+     */
+    public static boolean route(InvocationContext invocationCtx, String service, String version, String key) {
+        Map<String, ConsistentHashRing> rings = RINGS.get(service);
+        ConsistentHashRing ring = rings == null ? null : rings.get(version);
+        String instance = ring == null ? null : ring.select(key);
+        if (instance == null) {
+            NOT_ROUTED.increment();
+            return false;
+        }
+        int colon = instance.lastIndexOf(':');
+        invocationCtx.calleeIp(IPUtils.transferIp(instance.substring(0, colon)));
+        invocationCtx.calleePort(Integer.parseInt(instance.substring(colon + 1)));
+        ROUTED.increment();
+        return true;
+    }
+
+    private static void connect() {
+        String host = SysEnvUtil.get(SysEnvUtil.KEY_SOA_ZOOKEEPER_HOST, Constants.DEFAULT_ZOOKEEPER_HOST);
+        try {
+            zookeeper = new ZooKeeper(host, SESSION_TIMEOUT, StickyRouter::onConnectionEvent);
+        } catch (Exception e) {
+            logger.error("connect zookeeper " + host + " failed, sticky routing disabled: " + e.getMessage(), e);
+        }
+    }
+
+    private static void onConnectionEvent(WatchedEvent event) {
+        if (event.getType() != Watcher.Event.EventType.None) {
+            return;
+        }
+        switch (event.getState()) {
+            case SyncConnected:
+                POLICIES.keySet().forEach(StickyRouter::watch);
+                break;
+            case Expired:
+                // 会话过期后 watcher 全部失效, 重新连接; 期间沿用旧的哈希环
+                logger.warn("zookeeper session expired, reconnect for sticky routing");
+                RECONNECT.execute(() -> {
+                    try {
+                        zookeeper.close();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    connect();
+                });
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static void watch(String service) {
+        Watcher watcher = WATCHERS.computeIfAbsent(service, s -> event -> {
+            if (event.getType() == Watcher.Event.EventType.NodeChildrenChanged
+                    || event.getType() == Watcher.Event.EventType.NodeCreated) {
+                watch(s);
+            }
+        });
+        String path = RUNTIME_PATH + "/" + service;
+        try {
+            if (zookeeper.exists(path, watcher) == null) {
+                RINGS.put(service, Collections.emptyMap());
+                return;
+            }
+            List<String> children = zookeeper.getChildren(path, watcher);
+            Map<String, ConsistentHashRing> rings = rings(children);
+            RINGS.put(service, rings);
+            if (logger.isInfoEnabled()) {
+                Map<String, Integer> sizes = new TreeMap<>();
+                rings.forEach((version, ring) -> sizes.put(version, ring.size()));
+                logger.info("sticky routing ring rebuilt, service: {}, instances by version: {}", service, sizes);
+            }
+        } catch (KeeperException.NoNodeException e) {
+            RINGS.put(service, Collections.emptyMap());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.error("watch instances of " + service + " failed, keep current ring: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @param children ip:port:version:seq
+     */
+    static Map<String, ConsistentHashRing> rings(List<String> children) {
+        Map<String, List<String>> byVersion = new HashMap<>();
+        for (String child : children) {
+            String[] parts = child.split(":");
+            if (parts.length < 3) {
+                continue;
+            }
+            byVersion.computeIfAbsent(parts[2], k -> new ArrayList<>()).add(parts[0] + ":" + parts[1]);
+        }
+        Map<String, ConsistentHashRing> rings = new HashMap<>();
+        byVersion.forEach((version, instances) -> rings.put(version, ConsistentHashRing.of(instances)));
+        return Collections.unmodifiableMap(rings);
+    }
+
+    /**
+     * 在 json 中查找第一个名为 name 的字段, 返回字符串或数字值; 不解析整个 json
+     */
+    static String jsonField(String json, String name) {
+        String quoted = "\"" + name + "\"";
+        int from = 0;
+        while (true) {
+            int i = json.indexOf(quoted, from);
+            if (i < 0) {
+                return null;
+            }
+            int j = skipWhitespace(json, i + quoted.length());
+            from = i + quoted.length();
+            if (j >= json.length() || json.charAt(j) != ':') {
+                // 是值而不是字段名
+                continue;
+            }
+            j = skipWhitespace(json, j + 1);
+            if (j >= json.length()) {
+                return null;
+            }
+            if (json.charAt(j) == '"') {
+                int end = json.indexOf('"', j + 1);
+                return end < 0 ? null : json.substring(j + 1, end);
+            }
+            int end = j;
+            while (end < json.length() && ",}] \t\r\n".indexOf(json.charAt(end)) < 0) {
+                end++;
+            }
+            return end > j ? json.substring(j, end) : null;
+        }
+    }
+
+    private static int skipWhitespace(String json, int i) {
+        while (i < json.length() && Character.isWhitespace(json.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    static Map<String, Policy> parse(String config) {
+        Map<String, Policy> policies = new HashMap<>();
+        for (String item : config.split(",")) {
+            item = item.trim();
+            if (item.isEmpty()) {
+                continue;
+            }
+            int eq = item.indexOf('=');
+            int colon = item.indexOf(':', eq + 1);
+            if (eq <= 0 || colon < 0) {
+                logger.warn("invalid sticky routing policy, ignored: {}", item);
+                continue;
+            }
+            try {
+                Source source = Source.valueOf(item.substring(eq + 1, colon).trim().toUpperCase());
+                policies.put(item.substring(0, eq).trim(), new Policy(source, item.substring(colon + 1).trim()));
+            } catch (IllegalArgumentException e) {
+                logger.warn("invalid sticky routing key source, ignored: {}", item);
+            }
+        }
+        return Collections.unmodifiableMap(policies);
+    }
+
+    enum Source {
+        /**
+         * cookie, 包括 url 中的 cookie_xxx 参数
+         */
+        COOKIE,
+        /**
+         * url 或表单参数
+         */
+        PARAM,
+        /**
+         * json 请求体中的字段
+         */
+        BODY
+    }
+
+    static final class Policy {
+        final Source source;
+        final String name;
+
+        Policy(Source source, String name) {
+            this.source = source;
+            this.name = name;
+        }
+
+        @Override
+        public String toString() {
+            return source.name().toLowerCase() + ":" + name;
+        }
+    }
+}
@@ -21,6 +21,9 @@ public class Constants {
     public static final String SERVICE_LIST = "/api/list";
     public static final String SYS_TIME_SYNC = "/api/sysTime";
     public static final String ECHO_PREFIX = "/api/echo";
+    public static final String ECHO_ALL = "/api/echo/all";
+    public static final String METRICS = "/metrics";
+    public static final String SLOW_REQUESTS = "/metrics/slow";
 
 
     public static final String AUTH_SERVICE_NAME = "com.github.dapeng.mesh.auth.service.MeshAuthService";
@@ -24,7 +24,11 @@ public enum DapengMeshCode implements SoaBaseCodeInterface {
     MeshUnknowEx("Err-Mesh-510", "ApiMesh未知异常"),
     AuthParameterEx("Err-Mesh-511", "请求校验参数为空,请检查 api-key,timestamp"),
     AuthSecretEx("Err-Mesh-512", "请求校验参数secret,secret2 至少有一个不为空"),
-    ParameterError("Err-Mesh-513", "请求参数 Request 部分参数不能为空");
+    ParameterError("Err-Mesh-513", "请求参数 Request 部分参数不能为空"),
+    MeshWarming("Err-Mesh-514", "health check is warming,container is not ready yet"),
+    AuthExpired("Err-GateWay-004", "Api网关请求超时"),
+    AuthReplayed("Err-Mesh-515", "重复的请求,相同签名的请求只能调用一次"),
+    MeshBusy("Err-Mesh-516", "网关繁忙,请求排队已满或排队超时,请稍后重试");
 
 
     private String code;
@@ -0,0 +1,121 @@
+package com.github.dapeng.gateway.util;
+
+import com.github.dapeng.core.SoaCode;
+import io.netty.util.concurrent.FastThreadLocal;
+
+/**
+ * 网关返回的 json 信封: {"responseCode":"...", "responseMsg":"...", "success":"{}", "status":0}
+ * <p>
+ * 每个 {@link DapengMeshCode} 的错误报文在类加载时生成; 其余报文写入线程私有的 StringBuilder,
+ * 对 code/msg 做 json 转义, 不使用 String.format. 后端大面积故障时错误路径几乎没有额外开销.
+ *
+ * @author agent 2026.10.19
+ */
+public final class JsonEnvelope {
+    /**
+     * 线程私有 StringBuilder 超过该容量后不再复用, 避免偶发的大报文长期占用内存
+     */
+    private static final int MAX_REUSED_CAPACITY = 4096;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static final FastThreadLocal<StringBuilder> BUILDER = new FastThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(256);
+        }
+    };
+
+    private static final String[] MESH_ERRORS;
+
+    /**
+     * 后端服务不存在
+     */
+    public static final String NO_MATCHED_SERVICE = error(SoaCode.NoMatchedService.getCode(), SoaCode.NoMatchedService.getMsg());
+    /**
+     * 调用后端时出现非 SoaException 的异常
+     */
+    public static final String SYSTEM_BUSY = error("9999", "系统繁忙，请稍后再试[9999]！");
+
+    static {
+        DapengMeshCode[] codes = DapengMeshCode.values();
+        MESH_ERRORS = new String[codes.length];
+        for (DapengMeshCode code : codes) {
+            MESH_ERRORS[code.ordinal()] = error(code.getCode(), code.getMsg());
+        }
+    }
+
+    private JsonEnvelope() {
+    }
+
+    /**
+     * 预先生成的错误报文
+     */
+    public static String error(DapengMeshCode code) {
+        return MESH_ERRORS[code.ordinal()];
+    }
+
+    public static String error(String code, String msg) {
+        return write(code, msg, 0);
+    }
+
+    public static String success(Object msg) {
+        return write("0000", String.valueOf(msg), 1);
+    }
+
+    private static String write(String code, String msg, int status) {
+        StringBuilder out = BUILDER.get();
+        out.setLength(0);
+        out.append("{\"responseCode\":\"");
+        escape(out, code);
+        out.append("\", \"responseMsg\":\"");
+        escape(out, msg);
+        out.append("\", \"success\":\"{}\", \"status\":").append(status).append('}');
+        String json = out.toString();
+        if (out.capacity() > MAX_REUSED_CAPACITY) {
+            BUILDER.remove();
+        }
+        return json;
+    }
+
+    /**
+     * 按 json 字符串规则转义后写入, null 写为 null
+     */
+    public static void escape(StringBuilder out, CharSequence value) {
+        if (value == null) {
+            out.append("null");
+            return;
+        }
+        int length = value.length();
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') {
+                continue;
+            }
+            out.append(value, start, i);
+            start = i + 1;
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    out.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+                    break;
+            }
+        }
+        out.append(value, start, length);
+    }
+}
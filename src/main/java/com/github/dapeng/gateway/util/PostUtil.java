@@ -9,8 +9,10 @@ import com.github.dapeng.core.enums.CodecProtocol;
 import com.github.dapeng.core.helper.DapengUtil;
 import com.github.dapeng.core.helper.IPUtils;
 import com.github.dapeng.core.helper.SoaSystemEnvProperties;
+import com.github.dapeng.gateway.auth.WhiteListHandler;
 import com.github.dapeng.gateway.netty.request.RequestContext;
 import com.github.dapeng.gateway.netty.request.RequestParser;
+import com.github.dapeng.gateway.route.StickyRouter;
 import com.github.dapeng.json.OptimizedMetadata;
 import com.github.dapeng.openapi.cache.ServiceCache;
 import io.netty.handler.codec.http.FullHttpRequest;
@@ -36,6 +38,11 @@ import static com.github.dapeng.gateway.util.InvokeUtil.*;
 public class PostUtil {
     private static final Logger LOGGER = LoggerFactory.getLogger(com.github.dapeng.openapi.utils.PostUtil.class);
 
+    /**
+     * 启动预热请求的返回, 不调用后端
+     */
+    private static final String WARM_UP_RESPONSE = "{\"success\":{},\"responseCode\":\"0000\",\"responseMsg\":\"ok\"}";
+
     public static Future<String> postAsync(RequestContext context) throws SoaException {
         preCheck(context);
 
@@ -44,42 +51,59 @@ public class PostUtil {
         String version = context.version().get();
         String method = context.method().get();
         FullHttpRequest request = context.request();
-        return doPostAsync(service, version, method, parameter, request, getCookiesFromParameter(context));
+        Map<String, String> cookies = getCookiesFromParameter(context);
+        return doPostAsync(context, service, version, method, parameter, request, cookies, StickyRouter.key(service, context, cookies));
     }
 
 
-    private static Future<String> doPostAsync(String service,
+    private static Future<String> doPostAsync(RequestContext context,
+                                              String service,
                                               String version,
                                               String method,
                                               String parameter,
                                               FullHttpRequest req,
-                                              Map<String, String> cookies) {
+                                              Map<String, String> cookies,
+                                              String routingKey) {
 
         InvocationContextImpl invocationCtx = (InvocationContextImpl) createInvocationCtx(service, version, method, req, cookies);
-
-        OptimizedMetadata.OptimizedService bizService = ServiceCache.getService(service, version);
-
-        if (bizService == null) {
-            LOGGER.error("bizService not found[service:" + service + ", version:" + version + "]");
-            return CompletableFuture.completedFuture(String.format("{\"responseCode\":\"%s\", \"responseMsg\":\"%s\", \"success\":\"%s\", \"status\":0}", SoaCode.NoMatchedService.getCode(), SoaCode.NoMatchedService.getMsg(), "{}"));
+        context.sessionTid(invocationCtx.sessionTid().orElse(0L));
+        boolean pinned = fillInvocationCtx(invocationCtx, req);
+        // 请求没有指定 calleeIp 时按路由 key 粘到固定实例
+        if (!pinned && routingKey != null) {
+            StickyRouter.route(invocationCtx, service, version, routingKey);
         }
-        fillInvocationCtx(invocationCtx, req);
-
-        JsonPost jsonPost = new JsonPost(service, version, method, true);
 
         try {
-            return jsonPost.callServiceMethodAsync(parameter, bizService);
+            if (context.warmUp()) {
+                return CompletableFuture.completedFuture(WARM_UP_RESPONSE);
+            }
+            return jsonPostAsync(service, version, method, parameter);
         } catch (SoaException e) {
-            LOGGER.error(e.getMsg(), e);
-            return CompletableFuture.completedFuture(String.format("{\"responseCode\":\"%s\", \"responseMsg\":\"%s\", \"success\":\"%s\", \"status\":0}", e.getCode(), e.getMsg(), "{}"));
+            // 业务可预期的错误, 不打印堆栈
+            LOGGER.error("{}: {}", e.getCode(), e.getMsg());
+            return CompletableFuture.completedFuture(JsonEnvelope.error(e.getCode(), e.getMsg()));
         } catch (Exception e) {
             LOGGER.error(e.getMessage(), e);
-            return CompletableFuture.completedFuture(String.format("{\"responseCode\":\"%s\", \"responseMsg\":\"%s\", \"success\":\"%s\", \"status\":0}", "9999", "系统繁忙，请稍后再试[9999]！", "{}"));
+            return CompletableFuture.completedFuture(JsonEnvelope.SYSTEM_BUSY);
         } finally {
             InvocationContextImpl.Factory.removeCurrentInstance();
         }
     }
 
+    /**
+     * 从 ServiceCache 取服务元数据, 通过 JsonPost 调用
+     */
+    private static Future<String> jsonPostAsync(String service, String version, String method, String parameter) throws Exception {
+        OptimizedMetadata.OptimizedService bizService = ServiceCache.getService(service, version);
+
+        if (!listed(bizService)) {
+            LOGGER.error("bizService not found[service:" + service + ", version:" + version + "]");
+            return CompletableFuture.completedFuture(JsonEnvelope.NO_MATCHED_SERVICE);
+        }
+        JsonPost jsonPost = new JsonPost(service, version, method, true);
+        return jsonPost.callServiceMethodAsync(parameter, bizService);
+    }
+
     /**
      * 同步 postSync
      *
@@ -95,7 +119,7 @@ public class PostUtil {
 
         OptimizedMetadata.OptimizedService bizService = ServiceCache.getService(service, version);
 
-        if (bizService == null) {
+        if (!listed(bizService)) {
             LOGGER.error("bizService not found[service:" + service + ", version:" + version + "]");
             throw new SoaException(SoaCode.NoMatchedService);
         }
@@ -111,6 +135,13 @@ public class PostUtil {
         }
     }
 
+    /**
+     * 白名单热加载时元数据缓存中有白名单之外的服务, 按元数据中的全名检查
+     */
+    private static boolean listed(OptimizedMetadata.OptimizedService bizService) {
+        return bizService != null && WhiteListHandler.listed(bizService.getService().namespace + "." + bizService.getService().name);
+    }
+
     private static InvocationContext createInvocationCtx(String service,
                                                          String version,
                                                          String method,
@@ -139,9 +170,13 @@ public class PostUtil {
         return invocationCtx;
     }
 
-    private static void fillInvocationCtx(InvocationContext invocationCtx, FullHttpRequest req) {
+    /**
+     * @return 请求是否指定了 calleeIp
+     */
+    private static boolean fillInvocationCtx(InvocationContext invocationCtx, FullHttpRequest req) {
         Map<String, List<String>> parameters = RequestParser.fastParseToMap(req);
-        if (parameters.containsKey("calleeIp")) {
+        boolean pinned = parameters.containsKey("calleeIp");
+        if (pinned) {
             invocationCtx.calleeIp(IPUtils.transferIp(parameters.get("calleeIp").get(0)));
         }
 
@@ -163,6 +198,7 @@ public class PostUtil {
 
         InvocationContext.InvocationContextProxy invocationCtxProxy = InvocationContextImpl.Factory.getInvocationContextProxy();
         invocationCtx.cookies(invocationCtxProxy.cookies());
+        return pinned;
     }
 
     private static int getEnvTimeOut() {
@@ -12,15 +12,279 @@ public class SysEnvUtil {
 
     public static final String KEY_SOA_ZOOKEEPER_HOST = "soa.zookeeper.host";
     public static final String KEY_OPEN_AUTH_ENABLE = "soa.open.auth.enable";
+    public static final String KEY_AUTH_TIMESTAMP_CHECK_ENABLE = "soa.auth.timestamp.check.enable";
+    public static final String KEY_AUTH_TIMESTAMP_WINDOW = "soa.auth.timestamp.window";
+    public static final String KEY_AUTH_REPLAY_ENABLE = "soa.auth.replay.enable";
+    public static final String KEY_AUTH_REPLAY_CAPACITY = "soa.auth.replay.capacity";
     public static final String KEY_WHITE_LIST_ENABLE = "soa.white.list.enable";
+    public static final String KEY_WHITE_LIST_RELOAD_ENABLE = "soa.white.list.reload.enable";
+    public static final String KEY_SHUTDOWN_HEALTH_CHECK_FAILURES = "soa.shutdown.health.check.failures";
+    public static final String KEY_SHUTDOWN_LB_TIMEOUT = "soa.shutdown.lb.timeout";
+    public static final String KEY_WARMUP_ENABLE = "soa.warmup.enable";
+    public static final String KEY_WARMUP_TIMEOUT = "soa.warmup.timeout";
+    public static final String KEY_WARMUP_JIT_ENABLE = "soa.warmup.jit.enable";
+    public static final String KEY_WARMUP_JIT_CORPUS = "soa.warmup.jit.corpus";
+    public static final String KEY_WARMUP_JIT_ITERATIONS = "soa.warmup.jit.iterations";
+    public static final String KEY_ECHO_CACHE_TTL = "soa.echo.cache.ttl";
+    public static final String KEY_ECHO_THREADS = "soa.echo.threads";
+    public static final String KEY_CONNECTION_READ_IDLE_TIMEOUT = "soa.connection.read.idle.timeout";
+    public static final String KEY_CONNECTION_WRITE_IDLE_TIMEOUT = "soa.connection.write.idle.timeout";
+    public static final String KEY_CONNECTION_MAX_REQUESTS = "soa.connection.max.requests";
+    public static final String KEY_CONNECTION_MAX = "soa.connection.max";
+    public static final String KEY_CONNECTION_MAX_PER_IP = "soa.connection.max.per.ip";
+    public static final String KEY_CONNECTION_WRITE_BUFFER_HIGH = "soa.connection.write.buffer.high";
+    public static final String KEY_CONNECTION_WRITE_BUFFER_LOW = "soa.connection.write.buffer.low";
+    public static final String KEY_CONNECTION_MAX_IN_FLIGHT = "soa.connection.max.in.flight";
+    public static final String KEY_LOOP_WATCHDOG_ENABLE = "soa.loop.watchdog.enable";
+    public static final String KEY_LOOP_WATCHDOG_INTERVAL = "soa.loop.watchdog.interval";
+    public static final String KEY_LOOP_WATCHDOG_THRESHOLD = "soa.loop.watchdog.threshold";
+    public static final String KEY_TLS_ENABLE = "soa.tls.enable";
+    public static final String KEY_TLS_CERT = "soa.tls.cert";
+    public static final String KEY_TLS_KEY = "soa.tls.key";
+    public static final String KEY_TLS_PROVIDER = "soa.tls.provider";
+    public static final String KEY_TLS_H2_ENABLE = "soa.tls.h2.enable";
+    public static final String KEY_TLS_SESSION_CACHE_SIZE = "soa.tls.session.cache.size";
+    public static final String KEY_TLS_SESSION_TIMEOUT = "soa.tls.session.timeout";
+    public static final String KEY_TLS_TICKET_KEY_FILE = "soa.tls.ticket.key.file";
+    public static final String KEY_TLS_RELOAD_INTERVAL = "soa.tls.reload.interval";
+    public static final String KEY_STICKY_ROUTING = "soa.sticky.routing";
+    public static final String KEY_BODY_MAX = "soa.body.max";
+    public static final String KEY_BODY_MAX_ROUTES = "soa.body.max.routes";
+    public static final String KEY_FAIR_MAX_CONCURRENCY = "soa.fair.max.concurrency";
+    public static final String KEY_FAIR_TIERS = "soa.fair.tiers";
+    public static final String KEY_FAIR_TIER_API_KEYS = "soa.fair.tier.apikeys";
+    public static final String KEY_FAIR_QUEUE_MAX = "soa.fair.queue.max";
+    public static final String KEY_FAIR_QUEUE_TIMEOUT = "soa.fair.queue.timeout";
+    public static final String KEY_ACCESS_LOG_ENABLE = "soa.access.log.enable";
+    public static final String KEY_ACCESS_LOG_DIR = "soa.access.log.dir";
+    public static final String KEY_ACCESS_LOG_BUFFER_SIZE = "soa.access.log.buffer.size";
+    public static final String KEY_ACCESS_LOG_SAMPLE_RATE = "soa.access.log.sample.rate";
+    public static final String KEY_ACCESS_LOG_PAYLOAD_MAX = "soa.access.log.payload.max";
+    public static final String KEY_ACCESS_LOG_MAX_HISTORY = "soa.access.log.max.history";
+    public static final String KEY_SLOW_REQUEST_SIZE = "soa.slow.request.size";
+    public static final String KEY_SLOW_REQUEST_WINDOW = "soa.slow.request.window";
+    public static final String KEY_CAPTURE_ENABLE = "soa.capture.enable";
+    public static final String KEY_CAPTURE_DIR = "soa.capture.dir";
+    public static final String KEY_CAPTURE_SAMPLE_RATE = "soa.capture.sample.rate";
+    public static final String KEY_CAPTURE_SEGMENT_SIZE = "soa.capture.segment.size";
+    public static final String KEY_CAPTURE_SEGMENTS = "soa.capture.segments";
+    public static final String KEY_JFR_ENABLE = "soa.jfr.enable";
     /**
      * 默认开启open接口鉴权
      */
     public static final String OPEN_AUTH_ENABLE = get(KEY_OPEN_AUTH_ENABLE, "true");
+    /**
+     * 鉴权前检查 timestamp 是否在时间窗口内, 默认关闭; 开启重放检查时总是检查
+     */
+    public static final String AUTH_TIMESTAMP_CHECK_ENABLE = get(KEY_AUTH_TIMESTAMP_CHECK_ENABLE, "false");
+    /**
+     * 请求 timestamp(毫秒)与网关时间允许的最大偏差(ms), 必须大于 0
+     */
+    public static final String AUTH_TIMESTAMP_WINDOW = get(KEY_AUTH_TIMESTAMP_WINDOW, "300000");
+    /**
+     * 拒绝重放的签名请求, 默认关闭; 开启后同一个签名请求在时间窗口内只能成功一次, 客户端需为每次调用生成新的 timestamp
+     */
+    public static final String AUTH_REPLAY_ENABLE = get(KEY_AUTH_REPLAY_ENABLE, "false");
+    /**
+     * 每个时间窗口内预计的鉴权请求数, 决定重放过滤器的内存
+     */
+    public static final String AUTH_REPLAY_CAPACITY = get(KEY_AUTH_REPLAY_CAPACITY, "200000");
     /**
      * 默认开启白名单
      */
     public static final String WHITE_LIST_ENABLE = get(KEY_WHITE_LIST_ENABLE, "true");
+    /**
+     * 默认监听白名单文件变化并热加载
+     */
+    public static final String WHITE_LIST_RELOAD_ENABLE = get(KEY_WHITE_LIST_RELOAD_ENABLE, "true");
+    /**
+     * 关闭时, 负载均衡连续收到多少次失败的健康检查后停止监听
+     */
+    public static final String SHUTDOWN_HEALTH_CHECK_FAILURES = get(KEY_SHUTDOWN_HEALTH_CHECK_FAILURES, "2");
+    /**
+     * 关闭时最多等待负载均衡摘除本节点的时间(ms), 该时间内没有收到健康检查则不等待
+     */
+    public static final String SHUTDOWN_LB_TIMEOUT = get(KEY_SHUTDOWN_LB_TIMEOUT, "15000");
+    /**
+     * 启动时预热元数据及后端连接, 完成前健康检查返回 WARMING, 默认关闭
+     */
+    public static final String WARMUP_ENABLE = get(KEY_WARMUP_ENABLE, "false");
+    /**
+     * 预热最长时间(ms), 超时后直接转为 GREEN
+     */
+    public static final String WARMUP_TIMEOUT = get(KEY_WARMUP_TIMEOUT, "30000");
+    /**
+     * 开始监听前用样本请求预热 JIT, 默认关闭
+     */
+    public static final String WARMUP_JIT_ENABLE = get(KEY_WARMUP_JIT_ENABLE, "false");
+    /**
+     * 预热请求样本: 文本文件、流量录制的文件(.bin)或目录, 或 classpath:xxx
+     */
+    public static final String WARMUP_JIT_CORPUS = get(KEY_WARMUP_JIT_CORPUS, "classpath:warmup-corpus.txt");
+    public static final String WARMUP_JIT_ITERATIONS = get(KEY_WARMUP_JIT_ITERATIONS, "20000");
+    /**
+     * echo 结果缓存时间(ms)
+     */
+    public static final String ECHO_CACHE_TTL = get(KEY_ECHO_CACHE_TTL, "2000");
+    /**
+     * 执行 echo 的线程数
+     */
+    public static final String ECHO_THREADS = get(KEY_ECHO_THREADS, "8");
+    /**
+     * 连接在该时间(ms)内没有收到数据且没有未完成请求时关闭, 0 表示不检测
+     */
+    public static final String CONNECTION_READ_IDLE_TIMEOUT = get(KEY_CONNECTION_READ_IDLE_TIMEOUT, "60000");
+    /**
+     * 响应在该时间(ms)内写不出去(客户端不读)时关闭连接, 0 表示不检测
+     */
+    public static final String CONNECTION_WRITE_IDLE_TIMEOUT = get(KEY_CONNECTION_WRITE_IDLE_TIMEOUT, "60000");
+    /**
+     * 单个 keep-alive 连接最多处理的请求数, 达到后响应带 Connection: close, 0 表示不限制
+     */
+    public static final String CONNECTION_MAX_REQUESTS = get(KEY_CONNECTION_MAX_REQUESTS, "10000");
+    /**
+     * 最大连接数, 超出的新连接直接关闭, 0 表示不限制
+     */
+    public static final String CONNECTION_MAX = get(KEY_CONNECTION_MAX, "20000");
+    /**
+     * 单个客户端 ip 的最大连接数, 0 表示不限制. 前面有 nginx 时所有连接都来自 nginx, 需要放大或关闭
+     */
+    public static final String CONNECTION_MAX_PER_IP = get(KEY_CONNECTION_MAX_PER_IP, "0");
+    /**
+     * 单连接待写出字节数超过高水位后暂停读取该连接, 降到低水位以下后恢复
+     */
+    public static final String CONNECTION_WRITE_BUFFER_HIGH = get(KEY_CONNECTION_WRITE_BUFFER_HIGH, "131072");
+    public static final String CONNECTION_WRITE_BUFFER_LOW = get(KEY_CONNECTION_WRITE_BUFFER_LOW, "65536");
+    /**
+     * 单连接未完成请求数达到该值后暂停读取该连接, 0 表示不限制
+     */
+    public static final String CONNECTION_MAX_IN_FLIGHT = get(KEY_CONNECTION_MAX_IN_FLIGHT, "16");
+    /**
+     * 默认开启 worker 线程阻塞检测
+     */
+    public static final String LOOP_WATCHDOG_ENABLE = get(KEY_LOOP_WATCHDOG_ENABLE, "true");
+    /**
+     * 探测间隔(ms)
+     */
+    public static final String LOOP_WATCHDOG_INTERVAL = get(KEY_LOOP_WATCHDOG_INTERVAL, "100");
+    /**
+     * 任务排队超过该时间(ms)视为阻塞, 打印 worker 线程堆栈
+     */
+    public static final String LOOP_WATCHDOG_THRESHOLD = get(KEY_LOOP_WATCHDOG_THRESHOLD, "200");
+    /**
+     * 默认不开启 TLS, 由前面的 nginx 终止
+     */
+    public static final String TLS_ENABLE = get(KEY_TLS_ENABLE, "false");
+    /**
+     * PEM 格式证书链及 PKCS#8 私钥
+     */
+    public static final String TLS_CERT = get(KEY_TLS_CERT, "/gateway-conf/tls/server.crt");
+    public static final String TLS_KEY = get(KEY_TLS_KEY, "/gateway-conf/tls/server.key");
+    /**
+     * auto: 有 netty-tcnative 时使用 OpenSSL, 否则使用 JDK; 也可指定 openssl 或 jdk
+     */
+    public static final String TLS_PROVIDER = get(KEY_TLS_PROVIDER, "auto");
+    /**
+     * 通过 ALPN 协商 h2, provider 不支持 ALPN 时只提供 http/1.1
+     */
+    public static final String TLS_H2_ENABLE = get(KEY_TLS_H2_ENABLE, "true");
+    public static final String TLS_SESSION_CACHE_SIZE = get(KEY_TLS_SESSION_CACHE_SIZE, "20480");
+    /**
+     * 会话缓存及会话票据有效期(s)
+     */
+    public static final String TLS_SESSION_TIMEOUT = get(KEY_TLS_SESSION_TIMEOUT, "3600");
+    /**
+     * 会话票据密钥文件, 每 48 字节一个密钥, 第一个用于加密; 多个网关共用同一文件时可以互相恢复会话. 为空时每个进程随机生成
+     */
+    public static final String TLS_TICKET_KEY_FILE = get(KEY_TLS_TICKET_KEY_FILE, "");
+    /**
+     * 检查证书文件是否变化的间隔(ms), 变化后新连接使用新证书, 0 表示不检查
+     */
+    public static final String TLS_RELOAD_INTERVAL = get(KEY_TLS_RELOAD_INTERVAL, "60000");
+    /**
+     * 按请求中的 key 把同一 key 的请求固定路由到同一个服务实例, 默认不开启.
+     * 格式: 服务名=来源:名称, 多个服务用逗号分隔, 来源为 cookie / param / body, 例如
+     * com.today.api.stock.service.StockService=cookie:storeId
+     */
+    public static final String STICKY_ROUTING = get(KEY_STICKY_ROUTING, "");
+    /**
+     * 请求体全局上限(字节)
+     */
+    public static final String BODY_MAX = get(KEY_BODY_MAX, "10485760");
+    /**
+     * 按路由限制请求体, 格式: 路径前缀或服务名:字节数, 逗号分隔; 服务名优先, 不能超过全局上限
+     */
+    public static final String BODY_MAX_ROUTES = get(KEY_BODY_MAX_ROUTES, "/health:0,/api/sysTime:0,/api/list:0,/api/echo:0,/metrics:0");
+    /**
+     * 同时进行的后端调用数上限, 达到上限后按 apiKey 分级排队, 0 表示不限制
+     */
+    public static final String FAIR_MAX_CONCURRENCY = get(KEY_FAIR_MAX_CONCURRENCY, "0");
+    /**
+     * 分级及权重, 格式: 级别:权重, 逗号分隔; 未配置的 apiKey 属于 default 级
+     */
+    public static final String FAIR_TIERS = get(KEY_FAIR_TIERS, "realtime:8,default:4,batch:1");
+    /**
+     * apiKey 所属级别, 格式: apiKey:级别, 逗号分隔
+     */
+    public static final String FAIR_TIER_API_KEYS = get(KEY_FAIR_TIER_API_KEYS, "");
+    /**
+     * 每一级最多排队的请求数, 超出直接返回繁忙
+     */
+    public static final String FAIR_QUEUE_MAX = get(KEY_FAIR_QUEUE_MAX, "1000");
+    /**
+     * 最长排队时间(ms), 超时返回繁忙
+     */
+    public static final String FAIR_QUEUE_TIMEOUT = get(KEY_FAIR_QUEUE_TIMEOUT, "1000");
+    /**
+     * 默认开启二进制访问日志, 每个请求一条定长记录(默认 424 字节), 文件按天滚动, 保留 ACCESS_LOG_MAX_HISTORY 天
+     */
+    public static final String ACCESS_LOG_ENABLE = get(KEY_ACCESS_LOG_ENABLE, "true");
+    public static final String ACCESS_LOG_DIR = get(KEY_ACCESS_LOG_DIR, "./logs");
+    /**
+     * 环形缓冲区槽位数, 必须为 2 的幂
+     */
+    public static final String ACCESS_LOG_BUFFER_SIZE = get(KEY_ACCESS_LOG_BUFFER_SIZE, "8192");
+    /**
+     * 每 N 个请求采集一次响应内容, 0 表示不采集
+     */
+    public static final String ACCESS_LOG_SAMPLE_RATE = get(KEY_ACCESS_LOG_SAMPLE_RATE, "100");
+    /**
+     * 采集响应内容的最大字节数
+     */
+    public static final String ACCESS_LOG_PAYLOAD_MAX = get(KEY_ACCESS_LOG_PAYLOAD_MAX, "256");
+    /**
+     * 访问日志保留天数, 与 logback 的 maxHistory 一致; 0 表示不删除
+     */
+    public static final String ACCESS_LOG_MAX_HISTORY = get(KEY_ACCESS_LOG_MAX_HISTORY, "30");
+    /**
+     * 每个窗口保留的最慢请求数, 0 表示不记录
+     */
+    public static final String SLOW_REQUEST_SIZE = get(KEY_SLOW_REQUEST_SIZE, "32");
+    /**
+     * 慢请求统计窗口(ms)
+     */
+    public static final String SLOW_REQUEST_WINDOW = get(KEY_SLOW_REQUEST_WINDOW, "60000");
+    /**
+     * 默认不录制请求; 录制内容包括请求头和请求体, 可能含有 cookie 等敏感信息
+     */
+    public static final String CAPTURE_ENABLE = get(KEY_CAPTURE_ENABLE, "false");
+    public static final String CAPTURE_DIR = get(KEY_CAPTURE_DIR, "./logs/capture");
+    /**
+     * 每 N 个请求录制一个
+     */
+    public static final String CAPTURE_SAMPLE_RATE = get(KEY_CAPTURE_SAMPLE_RATE, "100");
+    /**
+     * 每个录制文件的大小(字节), 写满后换下一个文件
+     */
+    public static final String CAPTURE_SEGMENT_SIZE = get(KEY_CAPTURE_SEGMENT_SIZE, "67108864");
+    /**
+     * 最多保留的录制文件数, 超出时删除最早的
+     */
+    public static final String CAPTURE_SEGMENTS = get(KEY_CAPTURE_SEGMENTS, "16");
+    /**
+     * JFR 事件, 只在 JVM 支持 JFR 时生效; 各事件是否记录及阈值由 JFR 的 settings 决定
+     */
+    public static final String JFR_ENABLE = get(KEY_JFR_ENABLE, "true");
 
 
     public static String get(String key, String defaultValue) {
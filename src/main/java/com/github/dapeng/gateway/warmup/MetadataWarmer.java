@@ -0,0 +1,145 @@
+package com.github.dapeng.gateway.warmup;
+
+import com.github.dapeng.echo.EchoClient;
+import com.github.dapeng.gateway.auth.WhiteListHandler;
+import com.github.dapeng.gateway.http.GetUrlController;
+import com.github.dapeng.gateway.http.MeshHealthStatus;
+import com.github.dapeng.gateway.http.ServiceListCache;
+import com.github.dapeng.gateway.metrics.GatewayMetrics;
+import com.github.dapeng.json.OptimizedMetadata;
+import com.github.dapeng.openapi.cache.ServiceCache;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 启动预热: 健康检查保持 WARMING, 直到白名单内所有服务的元数据都已就绪、并对每个服务调用一次 echo 建立后端连接,
+ * 或超时; 之后转为 GREEN, 负载均衡才开始转发流量.
+ * <p>
+ * 预热耗时通过 dapeng_mesh_warmup_duration_millis 暴露.
+ *
+ * @author agent 2026.10.19
+ */
+public class MetadataWarmer implements Runnable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MetadataWarmer.class);
+
+    private static final long POLL_MILLIS = 200;
+    private static final int ECHO_THREADS = 4;
+
+    private static volatile long beginNanos = 0;
+    private static volatile long durationMillis = -1;
+
+    static {
+        GatewayMetrics.gauge("dapeng_mesh_warmup_duration_millis", "Startup warm-up duration, elapsed time while still warming",
+                () -> durationMillis >= 0 ? durationMillis : beginNanos == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - beginNanos));
+    }
+
+    private final long timeoutMillis;
+
+    private MetadataWarmer(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * 健康检查转为 WARMING, 后台开始预热
+     */
+    public static void start(long timeoutMillis) {
+        beginNanos = System.nanoTime();
+        GetUrlController.compareAndSetStatus(MeshHealthStatus.GREEN, MeshHealthStatus.WARMING);
+        Thread thread = new Thread(new MetadataWarmer(timeoutMillis), "dapeng-mesh-warmer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 预热耗时(ms), 未完成时返回 -1
+     */
+    public static long durationMillis() {
+        return durationMillis;
+    }
+
+    @Override
+    public void run() {
+        long deadline = beginNanos + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        boolean completed = false;
+        try {
+            Collection<OptimizedMetadata.OptimizedService> services = awaitMetadata(deadline);
+            completed = services != null && openConnections(services, deadline);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            LOGGER.error("warm up failed: " + e.getMessage(), e);
+        } finally {
+            durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - beginNanos);
+            ServiceListCache.invalidate();
+            // 预热期间开始关闭的, 保持 YELLOW
+            GetUrlController.compareAndSetStatus(MeshHealthStatus.WARMING, MeshHealthStatus.GREEN);
+            if (completed) {
+                LOGGER.info("warm up completed in {}ms, health check is GREEN", durationMillis);
+            } else {
+                LOGGER.warn("warm up not completed in {}ms, health check is GREEN anyway", durationMillis);
+            }
+        }
+    }
+
+    /**
+     * 等待白名单内所有服务的元数据加载完成
+     *
+     * @return 各服务的元数据, 超时返回 null
+     */
+    private Collection<OptimizedMetadata.OptimizedService> awaitMetadata(long deadline) throws InterruptedException {
+        Set<String> expected = WhiteListHandler.services();
+        while (true) {
+            Map<String, OptimizedMetadata.OptimizedService> cached = ServiceCache.getServices();
+            Set<String> missing = new TreeSet<>(expected);
+            cached.values().forEach(service -> missing.remove(service.getService().namespace + "." + service.getService().name));
+            if (missing.isEmpty()) {
+                // 白名单热加载时缓存中还有白名单之外的服务, 不为其建立连接
+                List<OptimizedMetadata.OptimizedService> listed = new ArrayList<>();
+                cached.values().forEach(service -> {
+                    if (WhiteListHandler.listed(service.getService().namespace + "." + service.getService().name)) {
+                        listed.add(service);
+                    }
+                });
+                LOGGER.info("metadata of {} services resolved in {}ms", listed.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - beginNanos));
+                return listed;
+            }
+            if (System.nanoTime() - deadline >= 0) {
+                LOGGER.warn("metadata not resolved before warm up timeout: {}", missing);
+                return null;
+            }
+            TimeUnit.MILLISECONDS.sleep(POLL_MILLIS);
+        }
+    }
+
+    /**
+     * 对每个服务调用一次 echo, 建立到后端的连接
+     *
+     * @return 超时前是否全部完成
+     */
+    private boolean openConnections(Collection<OptimizedMetadata.OptimizedService> services, long deadline) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(ECHO_THREADS, new DefaultThreadFactory("dapeng-mesh-warmer-echo", true));
+        try {
+            for (OptimizedMetadata.OptimizedService service : services) {
+                String serviceName = service.getService().namespace + "." + service.getService().name;
+                String version = service.getService().meta.version;
+                executor.execute(() -> {
+                    try {
+                        new EchoClient(serviceName, version).echo();
+                    } catch (Exception e) {
+                        LOGGER.warn("warm up echo {}:{} failed: {}", serviceName, version, e.getMessage());
+                    }
+                });
+            }
+            executor.shutdown();
+            return executor.awaitTermination(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
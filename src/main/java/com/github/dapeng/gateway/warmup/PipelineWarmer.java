@@ -0,0 +1,171 @@
+package com.github.dapeng.gateway.warmup;
+
+import com.github.dapeng.gateway.log.TrafficReplay;
+import com.github.dapeng.gateway.netty.GatewayChannelInitializer;
+import com.github.dapeng.gateway.util.Constants;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.AttributeKey;
+import io.netty.util.ReferenceCountUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JIT 预热: 开始监听之前, 把一组典型请求反复写入 {@link EmbeddedChannel}, 经过与线上相同的 pipeline
+ * (解码、url 解析、参数解析、响应编码), 让 C2 提前编译热点路径.
+ * <p>
+ * 预热的 channel 带有 {@link #WARM_UP} 标记, 这些请求不调用后端, 直接返回成功, 也不计入指标、访问日志、录制及 JFR 事件;
+ * 鉴权需要同步调用鉴权服务, 预热 pipeline 中不包含鉴权; echo 及健康检查请求会调用后端或影响关闭流程, 直接跳过.
+ * <p>
+ * 请求样本可以是文本文件, 每行 "METHOD URI [BODY]", # 开头为注释; 也可以是 {@link com.github.dapeng.gateway.log.TrafficCapture}
+ * 录制的文件或目录(.bin 或目录), 按录制的方法、uri 及请求体发送.
+ *
+ * @author agent 2026.10.19
+ */
+public class PipelineWarmer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PipelineWarmer.class);
+
+    private static final String CLASSPATH_PREFIX = "classpath:";
+    /**
+     * 录制文件中最多取多少条请求
+     */
+    private static final int MAX_RECORDED_REQUESTS = 1000;
+
+    private static final AttributeKey<Boolean> WARM_UP = AttributeKey.valueOf("dapeng-mesh-warm-up");
+
+    private PipelineWarmer() {
+    }
+
+    /**
+     * @return channel 是否为预热使用
+     */
+    public static boolean isWarmUp(Channel channel) {
+        return channel.hasAttr(WARM_UP);
+    }
+
+    /**
+     * @param corpus        请求样本, 文件路径或 classpath:xxx
+     * @param iterations    总共发送的请求数
+     * @param timeoutMillis 最长预热时间
+     */
+    public static void warmUp(String corpus, int iterations, long timeoutMillis) {
+        long begin = System.nanoTime();
+        List<byte[]> requests;
+        try {
+            requests = load(corpus);
+        } catch (IOException e) {
+            LOGGER.error("load warm up corpus [" + corpus + "] failed, skip jit warm up", e);
+            return;
+        }
+        if (requests.isEmpty()) {
+            LOGGER.warn("warm up corpus [{}] is empty, skip jit warm up", corpus);
+            return;
+        }
+
+        GatewayChannelInitializer initializer = new GatewayChannelInitializer(false);
+        EmbeddedChannel channel = newChannel(initializer);
+        long deadline = begin + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        int sent = 0;
+        try {
+            for (; sent < iterations; sent++) {
+                if ((sent & 0xff) == 0 && System.nanoTime() - deadline >= 0) {
+                    break;
+                }
+                // 非 keep-alive 或出错时网关会关闭连接
+                if (!channel.isActive()) {
+                    channel.finishAndReleaseAll();
+                    channel = newChannel(initializer);
+                }
+                channel.writeInbound(Unpooled.wrappedBuffer(requests.get(sent % requests.size())));
+                for (Object response; (response = channel.readOutbound()) != null; ) {
+                    ReferenceCountUtil.release(response);
+                }
+            }
+        } catch (Exception e) {
+            LOGGER.error("jit warm up failed: " + e.getMessage(), e);
+        } finally {
+            channel.finishAndReleaseAll();
+        }
+        LOGGER.info("jit warm up sent {} requests ({} distinct) in {}ms", sent, requests.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin));
+    }
+
+    private static EmbeddedChannel newChannel(GatewayChannelInitializer initializer) {
+        EmbeddedChannel channel = new EmbeddedChannel(initializer);
+        channel.attr(WARM_UP).set(Boolean.TRUE);
+        return channel;
+    }
+
+    /**
+     * 读取样本并编码为 http 报文
+     */
+    static List<byte[]> load(String corpus) throws IOException {
+        List<byte[]> requests = new ArrayList<>();
+        if (corpus.endsWith(".bin") || new File(corpus).isDirectory()) {
+            try {
+                for (String[] request : TrafficReplay.readRequests(corpus, MAX_RECORDED_REQUESTS)) {
+                    addIfSafe(requests, request[0], request[1], request[2].isEmpty() ? null : request[2]);
+                }
+            } catch (IllegalStateException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+            return requests;
+        }
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(open(corpus), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = line.split("\\s+", 3);
+                if (parts.length < 2) {
+                    LOGGER.warn("illegal warm up request: {}", line);
+                    continue;
+                }
+                addIfSafe(requests, parts[0].toUpperCase(), parts[1], parts.length > 2 ? parts[2] : null);
+            }
+        }
+        return requests;
+    }
+
+    private static InputStream open(String corpus) throws IOException {
+        if (corpus.startsWith(CLASSPATH_PREFIX)) {
+            InputStream in = PipelineWarmer.class.getClassLoader().getResourceAsStream(corpus.substring(CLASSPATH_PREFIX.length()));
+            if (in == null) {
+                throw new FileNotFoundException(corpus);
+            }
+            return in;
+        }
+        return new FileInputStream(corpus);
+    }
+
+    private static void addIfSafe(List<byte[]> requests, String method, String uri, String body) {
+        if (uri.startsWith(Constants.GET_HEALTH_CHECK_URL) || uri.contains(Constants.ECHO_PREFIX)) {
+            return;
+        }
+        byte[] content = body == null ? new byte[0] : body.getBytes(StandardCharsets.UTF_8);
+        StringBuilder header = new StringBuilder(256)
+                .append(method).append(' ').append(uri).append(" HTTP/1.1\r\n")
+                .append("Host: localhost\r\n")
+                // EmbeddedChannel 没有 socket 地址, 客户端 ip 取自该 header
+                .append("X-Forwarded-For: 127.0.0.1\r\n")
+                .append("Connection: keep-alive\r\n");
+        if (content.length > 0) {
+            header.append("Content-Type: application/x-www-form-urlencoded\r\n");
+        }
+        header.append("Content-Length: ").append(content.length).append("\r\n\r\n");
+
+        byte[] head = header.toString().getBytes(StandardCharsets.UTF_8);
+        byte[] request = Arrays.copyOf(head, head.length + content.length);
+        System.arraycopy(content, 0, request, head.length, content.length);
+        requests.add(request);
+    }
+}
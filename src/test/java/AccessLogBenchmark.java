@@ -0,0 +1,76 @@
+import com.github.dapeng.gateway.log.AccessLog;
+import com.github.dapeng.gateway.netty.request.RequestContext;
+import io.netty.handler.codec.http.HttpResponseStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 访问日志落盘能力, 以 -Dsoa.access.log.enable=true 运行.
+ * <p>
+ * 参数: 线程数 秒数 目标速率(条/秒, 0 表示不限速).
+ * 不限速时绝大多数记录因缓冲区满被丢弃, log() 调用次数只反映丢弃路径的开销, 应看 persisted/s;
+ * 逐步提高目标速率, dropped 仍为 0 的最大速率即可持续落盘的速率.
+ *
+ * @author agent 2026.10.19
+ */
+public class AccessLogBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        long rate = args.length > 2 ? Long.parseLong(args[2]) : 0;
+
+        StringBuilder body = new StringBuilder("{\"success\":{\"items\":[");
+        for (int i = 0; i < 40; i++) {
+            body.append("{\"id\":").append(i).append(",\"code\":\"SKU_FINANCE_TYPE\"},");
+        }
+        body.append("{}]},\"status\":1}");
+        byte[] payload = body.toString().getBytes(StandardCharsets.UTF_8);
+
+        RequestContext context = new RequestContext();
+        context.requestUrl("/api/com.today.api.order.service.OrderService2/1.0.0/createOrder/apiKey?timestamp=1525946628000&secret2=xxxxxx");
+
+        // 每个线程两次调用之间的间隔
+        long intervalNanos = rate > 0 ? TimeUnit.SECONDS.toNanos(threads) / rate : 0;
+        LongAdder counter = new LongAdder();
+        CountDownLatch latch = new CountDownLatch(threads);
+        long begin = System.nanoTime();
+        long deadline = begin + TimeUnit.SECONDS.toNanos(seconds);
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                long n = 0;
+                long next = System.nanoTime();
+                while (next < deadline) {
+                    if (intervalNanos > 0) {
+                        long wait = next - System.nanoTime();
+                        if (wait > 0) {
+                            LockSupport.parkNanos(wait);
+                        }
+                        next += intervalNanos;
+                    } else {
+                        next = System.nanoTime();
+                    }
+                    context.receiveNanos(System.nanoTime());
+                    AccessLog.log(context, HttpResponseStatus.OK, payload);
+                    n++;
+                }
+                counter.add(n);
+                latch.countDown();
+            }).start();
+        }
+        latch.await();
+        // 等待缓冲区中的记录全部落盘
+        AccessLog.shutdown();
+        double elapsed = (System.nanoTime() - begin) / 1e9;
+
+        long calls = counter.sum();
+        long dropped = AccessLog.dropped();
+        System.out.printf("threads: %d, target: %s, log() calls/s: %.0f, persisted/s: %.0f, dropped: %d (%.1f%%)%n",
+                threads, rate > 0 ? rate + "/s" : "unlimited", calls / elapsed, (calls - dropped) / elapsed,
+                dropped, calls == 0 ? 0 : dropped * 100.0 / calls);
+    }
+}
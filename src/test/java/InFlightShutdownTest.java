@@ -0,0 +1,69 @@
+import com.github.dapeng.gateway.netty.InFlightTracker;
+import com.github.dapeng.gateway.netty.request.RequestContext;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 负载下关闭: worker 线程持续接收请求, 后端线程池随机延迟后响应;
+ * 停止接收后等待排空, 校验排空时确实没有未完成请求, 且在最后一个请求结束后立即返回.
+ *
+ * @author agent 2026.10.19
+ */
+public class InFlightShutdownTest {
+
+    public static void main(String[] args) throws Exception {
+        InFlightTracker tracker = new InFlightTracker();
+        ScheduledExecutorService backend = Executors.newScheduledThreadPool(8);
+        ExecutorService workers = Executors.newFixedThreadPool(8);
+
+        AtomicLong lastEndNanos = new AtomicLong();
+        AtomicLong requests = new AtomicLong();
+        AtomicBoolean accepting = new AtomicBoolean(true);
+
+        for (int i = 0; i < 8; i++) {
+            workers.execute(() -> {
+                while (accepting.get()) {
+                    RequestContext context = new RequestContext();
+                    tracker.begin();
+                    requests.incrementAndGet();
+                    tracker.beginService("com.today.api.order.service.OrderService2");
+                    backend.schedule(() -> {
+                        tracker.endService("com.today.api.order.service.OrderService2");
+                        tracker.end(context);
+                        // 重复响应不应重复计数
+                        tracker.end(context);
+                        lastEndNanos.accumulateAndGet(System.nanoTime(), Math::max);
+                    }, ThreadLocalRandom.current().nextInt(1, 800), TimeUnit.MILLISECONDS);
+                    LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(200));
+                }
+            });
+        }
+
+        TimeUnit.SECONDS.sleep(2);
+        accepting.set(false);
+        workers.shutdown();
+        workers.awaitTermination(1, TimeUnit.SECONDS);
+
+        System.out.println("requests: " + requests.get() + ", in flight at shutdown: " + tracker.inFlight() + ", by service: " + tracker.inFlightByService());
+        boolean drained = tracker.awaitDrained(10, TimeUnit.SECONDS);
+        long returnNanos = System.nanoTime();
+
+        check(drained, "drain timed out");
+        check(tracker.inFlight() == 0, "drained with " + tracker.inFlight() + " requests in flight");
+        check(tracker.inFlightByService().isEmpty(), "service counters not zero: " + tracker.inFlightByService());
+        long lagMillis = TimeUnit.NANOSECONDS.toMillis(returnNanos - lastEndNanos.get());
+        check(lagMillis < 100, "drain returned " + lagMillis + "ms after the last request");
+
+        backend.shutdown();
+        System.out.println("drained " + lagMillis + "ms after the last request completed");
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+}
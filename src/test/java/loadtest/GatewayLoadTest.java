@@ -0,0 +1,119 @@
+package loadtest;
+
+import com.github.dapeng.gateway.http.HttpProcessorUtils;
+import com.github.dapeng.gateway.log.AccessLog;
+import com.github.dapeng.gateway.netty.NettyHttpServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URLEncoder;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 端到端压测: 本机启动 {@link NettyHttpServer}, 后端为 {@link StubBackend}, 请求经过 ServiceCache、JsonPost 及 dapeng 客户端,
+ * 通过 calleeIp/calleePort 直连桩服务. dapeng 客户端会连接 soa.zookeeper.host 注册服务监听, 需要可连接的 zookeeper(本机空的即可).
+ * <p>
+ * 参数均为 key=value, 例如:
+ * <pre>
+ * java loadtest.GatewayLoadTest connections=64 duration=30 latency.p50=2000 latency.p99=20000 payload.p50=1024
+ * </pre>
+ * <ul>
+ * <li>connections: 并发连接数, 默认 64</li>
+ * <li>rate: 总请求速率(req/s), 0 表示闭环压测, 默认 0</li>
+ * <li>warmup / duration: 预热及测量时长(秒), 默认 10 / 30</li>
+ * <li>latency.p50 / latency.p99: 桩服务延迟(微秒), 默认 2000 / 20000</li>
+ * <li>payload.p50 / payload.max: 桩服务返回报文大小(字节), 默认 1024 / 65536</li>
+ * <li>backend.threads: 桩服务线程数, 默认 4</li>
+ * <li>request.items: 请求 parameter 中的商品数, 用于控制请求大小, 默认 10</li>
+ * </ul>
+ * 默认关闭鉴权, 访问日志等其余配置与线上一致, 可通过 -D 覆盖.
+ *
+ * @author agent 2026.10.19
+ */
+public class GatewayLoadTest {
+    private static final String URI = "/api/" + StubBackend.SERVICE + "/" + StubBackend.VERSION + "/" + StubBackend.METHOD;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int index = arg.indexOf('=');
+            options.put(arg.substring(0, index), arg.substring(index + 1));
+        }
+        int connections = intOption(options, "connections", 64);
+        long rate = intOption(options, "rate", 0);
+        int warmup = intOption(options, "warmup", 10);
+        int duration = intOption(options, "duration", 30);
+
+        // 必须在 SysEnvUtil 加载之前设置
+        if (System.getProperty("soa.open.auth.enable") == null) {
+            System.setProperty("soa.open.auth.enable", "false");
+        }
+
+        StubBackend backend = new StubBackend(intOption(options, "backend.threads", 4),
+                intOption(options, "latency.p50", 2000), intOption(options, "latency.p99", 20000),
+                intOption(options, "payload.p50", 1024), intOption(options, "payload.max", 65536));
+        int backendPort = backend.start();
+
+        int port = freePort();
+        NettyHttpServer server = new NettyHttpServer(port);
+        Thread serverThread = new Thread(server::start, "gateway-load-test-server");
+        serverThread.setDaemon(true);
+        serverThread.start();
+        awaitListening(port);
+
+        String body = "calleeIp=127.0.0.1&calleePort=" + backendPort
+                + "&parameter=" + URLEncoder.encode(parameter(intOption(options, "request.items", 10)), "UTF-8");
+        System.out.println("gateway listening at " + port + ", connections: " + connections + ", rate: " + (rate > 0 ? rate + " req/s" : "closed loop")
+                + ", request bytes: " + body.length() + ", options: " + options);
+
+        LoadGenerator generator = new LoadGenerator("127.0.0.1", port, connections, rate, LoadGenerator.formPost("127.0.0.1:" + port, URI, body));
+        LoadGenerator.Result result = generator.run(warmup, duration);
+
+        System.out.println(result);
+        System.out.println("gateway in flight: " + HttpProcessorUtils.getInFlightTracker().inFlight() + ", backend calls: " + backend.calls()
+                + ", access log dropped: " + AccessLog.dropped());
+
+        backend.shutdown();
+        AccessLog.shutdown();
+        System.exit(0);
+    }
+
+    private static String parameter(int items) {
+        StringBuilder json = new StringBuilder("{\"body\":{\"request\":{\"storeId\":1234,\"posId\":12,\"items\":[");
+        for (int i = 0; i < items; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"skuNo\":\"69012345").append(10000 + i).append("\",\"num\":").append(i % 9 + 1).append(",\"price\":12.50}");
+        }
+        return json.append("]}}}").toString();
+    }
+
+    private static int intOption(Map<String, String> options, String key, int defaultValue) {
+        String value = options.get(key);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void awaitListening(int port) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() < deadline) {
+            try (Socket socket = new Socket()) {
+                socket.connect(new InetSocketAddress("127.0.0.1", port), 100);
+                return;
+            } catch (IOException e) {
+                TimeUnit.MILLISECONDS.sleep(50);
+            }
+        }
+        throw new IllegalStateException("gateway not listening at " + port);
+    }
+}
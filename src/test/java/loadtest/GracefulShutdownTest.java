@@ -0,0 +1,269 @@
+package loadtest;
+
+import com.github.dapeng.gateway.http.HttpProcessorUtils;
+import com.github.dapeng.gateway.netty.NettyHttpServer;
+import com.github.dapeng.gateway.util.Constants;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.*;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.http.*;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 负载下优雅关闭: 本机启动 {@link NettyHttpServer}, 后端为慢速 {@link StubBackend}, 客户端持续发请求,
+ * 同时模拟负载均衡每 100ms 做一次健康检查; 压测中调用 {@link NettyHttpServer#shutdown()}(即 shutdownHook 的全过程).
+ * <p>
+ * 校验:
+ * <ul>
+ * <li>进入后端的请求都收到了完整的 200 响应, 没有被关闭截断</li>
+ * <li>关闭结束时处理中的请求数为 0, 且没有等到 SOA_SHUTDOWN_TIMEOUT</li>
+ * </ul>
+ * keep-alive 连接在空闲时被关闭, 客户端恰好在此时发出的请求网关从未收到(HTTP 允许客户端重试), 只统计不算失败;
+ * 网关收到的请求都会调用后端, 因此以桩服务收到的请求数作为网关收到的请求数.
+ * 与 {@link GatewayLoadTest} 一样需要可连接的 zookeeper.
+ * <pre>
+ * java loadtest.GracefulShutdownTest connections=32 latency.p50=200000 latency.p99=800000
+ * </pre>
+ *
+ * @author agent 2026.10.19
+ */
+public class GracefulShutdownTest {
+    private static final String URI = "/api/" + StubBackend.SERVICE + "/" + StubBackend.VERSION + "/" + StubBackend.METHOD;
+
+    private static final LongAdder OK = new LongAdder();
+    private static final LongAdder FAILED = new LongAdder();
+    private static final LongAdder UNANSWERED = new LongAdder();
+    private static final LongAdder HEALTH_CHECKS = new LongAdder();
+
+    private static final AtomicBoolean RUNNING = new AtomicBoolean(true);
+
+    public static void main(String[] args) throws Exception {
+        int connections = 32;
+        long latencyP50 = 200_000;
+        long latencyP99 = 800_000;
+        for (String arg : args) {
+            int index = arg.indexOf('=');
+            long value = Long.parseLong(arg.substring(index + 1));
+            switch (arg.substring(0, index)) {
+                case "connections":
+                    connections = (int) value;
+                    break;
+                case "latency.p50":
+                    latencyP50 = value;
+                    break;
+                case "latency.p99":
+                    latencyP99 = value;
+                    break;
+                default:
+                    throw new IllegalArgumentException(arg);
+            }
+        }
+        // 必须在 SysEnvUtil 加载之前设置
+        if (System.getProperty("soa.open.auth.enable") == null) {
+            System.setProperty("soa.open.auth.enable", "false");
+        }
+
+        StubBackend stub = new StubBackend(4, latencyP50, latencyP99, 1024, 4096);
+        int backendPort = stub.start();
+
+        int port = freePort();
+        NettyHttpServer server = new NettyHttpServer(port);
+        Thread serverThread = new Thread(server::start, "graceful-shutdown-test-server");
+        serverThread.setDaemon(true);
+        serverThread.start();
+        awaitListening(port);
+
+        Thread healthChecker = new Thread(() -> healthCheck(port), "graceful-shutdown-test-health-check");
+        healthChecker.setDaemon(true);
+        healthChecker.start();
+
+        String body = "calleeIp=127.0.0.1&calleePort=" + backendPort + "&parameter=" + URLEncoder.encode("{\"body\":{\"request\":{\"storeId\":1234}}}", "UTF-8");
+        FullHttpRequest template = LoadGenerator.formPost("127.0.0.1:" + port, URI, body);
+        EventLoopGroup group = new NioEventLoopGroup(2, new DefaultThreadFactory("graceful-shutdown-test-client", true));
+        CountDownLatch stopped = new CountDownLatch(connections);
+        Bootstrap bootstrap = new Bootstrap()
+                .group(group)
+                .channel(NioSocketChannel.class)
+                .option(ChannelOption.TCP_NODELAY, Boolean.TRUE);
+        for (int i = 0; i < connections; i++) {
+            new Client(bootstrap, port, template, stopped).connect();
+        }
+
+        TimeUnit.SECONDS.sleep(2);
+        long inFlight = HttpProcessorUtils.getInFlightTracker().inFlight();
+        long begin = System.nanoTime();
+        server.shutdown();
+        long shutdownMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+        long inFlightAfter = HttpProcessorUtils.getInFlightTracker().inFlight();
+
+        // 停止监听后客户端重连失败即停止
+        boolean allStopped = stopped.await(10, TimeUnit.SECONDS);
+        RUNNING.set(false);
+        group.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+        long backendCalls = stub.calls();
+        stub.shutdown();
+
+        System.out.println("in flight at shutdown: " + inFlight + ", shutdown: " + shutdownMillis + "ms, backend calls: " + backendCalls
+                + ", ok: " + OK.sum() + ", failed: " + FAILED.sum() + ", unanswered on idle close: " + UNANSWERED.sum()
+                + ", health checks: " + HEALTH_CHECKS.sum());
+        check(inFlight > 0, "no request in flight when shutdown started, increase connections or latency");
+        check(HEALTH_CHECKS.sum() > 0, "no health check answered");
+        check(allStopped, "clients still connected 10s after shutdown");
+        check(inFlightAfter == 0, inFlightAfter + " requests still in flight after shutdown");
+        check(FAILED.sum() == 0, FAILED.sum() + " responses were not 200 or were truncated");
+        check(OK.sum() == backendCalls, (backendCalls - OK.sum()) + " requests reached the backend but got no response");
+        // 最慢的请求 + 等待负载均衡的时间, 远小于 SOA_SHUTDOWN_TIMEOUT
+        check(shutdownMillis < TimeUnit.MICROSECONDS.toMillis(latencyP99) * 3 + 5000, "shutdown took " + shutdownMillis + "ms");
+        System.out.println("no request cut off");
+        System.exit(0);
+    }
+
+    /**
+     * 模拟 nginx 的健康检查, 每次新建连接
+     */
+    private static void healthCheck(int port) {
+        byte[] request = ("GET " + Constants.GET_HEALTH_CHECK_URL + " HTTP/1.1\r\nHost: 127.0.0.1\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+        while (RUNNING.get()) {
+            try (Socket socket = new Socket()) {
+                socket.connect(new InetSocketAddress("127.0.0.1", port), 100);
+                OutputStream out = socket.getOutputStream();
+                out.write(request);
+                out.flush();
+                InputStream in = socket.getInputStream();
+                byte[] buffer = new byte[1024];
+                while (in.read(buffer) >= 0) {
+                    // 读到连接关闭
+                }
+                HEALTH_CHECKS.increment();
+            } catch (IOException e) {
+                // 已停止监听
+            }
+            try {
+                TimeUnit.MILLISECONDS.sleep(100);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 一个客户端: 收到响应后立即发下一个请求, 网关要求关闭连接时重连, 重连失败时停止.
+     * 每个连接一个实例, 只在该连接的 event loop 上读写
+     */
+    private static final class Client extends SimpleChannelInboundHandler<FullHttpResponse> {
+        private final Bootstrap bootstrap;
+        private final FullHttpRequest template;
+        private final CountDownLatch stopped;
+        private boolean awaiting;
+
+        Client(Bootstrap bootstrap, int port, FullHttpRequest template, CountDownLatch stopped) {
+            Client handler = this;
+            this.bootstrap = bootstrap.clone().remoteAddress("127.0.0.1", port).handler(new ChannelInitializer<SocketChannel>() {
+                @Override
+                protected void initChannel(SocketChannel ch) {
+                    ch.pipeline().addLast(new HttpClientCodec());
+                    ch.pipeline().addLast(new HttpObjectAggregator(1024 * 1024));
+                    ch.pipeline().addLast(handler);
+                }
+            });
+            this.template = template;
+            this.stopped = stopped;
+        }
+
+        @Override
+        public boolean isSharable() {
+            // 重连时复用
+            return true;
+        }
+
+        void connect() {
+            bootstrap.connect().addListener((ChannelFutureListener) f -> {
+                if (!f.isSuccess()) {
+                    stopped.countDown();
+                }
+            });
+        }
+
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) {
+            send(ctx);
+        }
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, FullHttpResponse response) {
+            awaiting = false;
+            if (HttpResponseStatus.OK.equals(response.status()) && response.decoderResult().isSuccess()) {
+                OK.increment();
+            } else {
+                FAILED.increment();
+            }
+            if (HttpUtil.isKeepAlive(response)) {
+                send(ctx);
+            }
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) {
+            if (awaiting) {
+                UNANSWERED.increment();
+                awaiting = false;
+            }
+            connect();
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            if (awaiting) {
+                // 响应不完整
+                FAILED.increment();
+                awaiting = false;
+            }
+            ctx.close();
+        }
+
+        private void send(ChannelHandlerContext ctx) {
+            awaiting = true;
+            ctx.writeAndFlush(template.retainedDuplicate());
+        }
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void awaitListening(int port) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() < deadline) {
+            try (Socket socket = new Socket()) {
+                socket.connect(new InetSocketAddress("127.0.0.1", port), 100);
+                return;
+            } catch (IOException e) {
+                TimeUnit.MILLISECONDS.sleep(50);
+            }
+        }
+        throw new IllegalStateException("gateway not listening at " + port);
+    }
+}
@@ -0,0 +1,224 @@
+package loadtest;
+
+import com.github.dapeng.gateway.metrics.LogHistogram;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.*;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.http.*;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * http 压测客户端, 每个连接同一时刻只有一个请求.
+ * <p>
+ * rate 为 0 时闭环压测, 收到响应立即发送下一个请求;
+ * 否则按固定速率发送, 延迟从 "计划发送时间" 算起, 网关变慢时排队的时间也计入延迟, 避免 coordinated omission.
+ *
+ * @author agent 2026.10.19
+ */
+public class LoadGenerator {
+    private final String host;
+    private final int port;
+    private final int connections;
+    private final long ratePerSecond;
+    private final FullHttpRequest template;
+
+    private final List<Connection> handlers = new ArrayList<>();
+
+    private volatile boolean running = true;
+    private volatile boolean recording = false;
+
+    public LoadGenerator(String host, int port, int connections, long ratePerSecond, FullHttpRequest template) {
+        this.host = host;
+        this.port = port;
+        this.connections = connections;
+        this.ratePerSecond = ratePerSecond;
+        this.template = template;
+    }
+
+    public Result run(int warmupSeconds, int durationSeconds) throws InterruptedException {
+        EventLoopGroup group = new NioEventLoopGroup(Math.max(1, Runtime.getRuntime().availableProcessors() / 2), new DefaultThreadFactory("load-generator", true));
+        long intervalNanos = ratePerSecond > 0 ? TimeUnit.SECONDS.toNanos(connections) / ratePerSecond : 0;
+        try {
+            Bootstrap bootstrap = new Bootstrap()
+                    .group(group)
+                    .channel(NioSocketChannel.class)
+                    .option(ChannelOption.TCP_NODELAY, Boolean.TRUE);
+
+            for (int i = 0; i < connections; i++) {
+                Connection handler = new Connection(bootstrap, intervalNanos);
+                handlers.add(handler);
+                handler.connect().sync();
+            }
+
+            TimeUnit.SECONDS.sleep(warmupSeconds);
+            recording = true;
+            long begin = System.nanoTime();
+            TimeUnit.SECONDS.sleep(durationSeconds);
+            recording = false;
+            long elapsed = System.nanoTime() - begin;
+            running = false;
+
+            // 等待最后一批响应
+            TimeUnit.MILLISECONDS.sleep(500);
+            for (Connection handler : handlers) {
+                if (handler.channel != null) {
+                    handler.channel.close().sync();
+                }
+            }
+            return new Result(handlers, elapsed);
+        } finally {
+            group.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+            template.release();
+        }
+    }
+
+    public static class Result {
+        public final LogHistogram latencyMicros = new LogHistogram();
+        public final long errors;
+        public final long reconnects;
+        public final long elapsedNanos;
+
+        Result(List<Connection> handlers, long elapsedNanos) {
+            long errors = 0;
+            long reconnects = 0;
+            for (Connection handler : handlers) {
+                latencyMicros.merge(handler.latencyMicros);
+                errors += handler.errors;
+                reconnects += handler.reconnects;
+            }
+            this.errors = errors;
+            this.reconnects = reconnects;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public double throughput() {
+            return latencyMicros.count() * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("requests: %d, errors: %d, reconnects: %d, throughput: %.0f req/s%n"
+                            + "latency(ms) p50: %.3f, p99: %.3f, p999: %.3f, max: %.3f, mean: %.3f",
+                    latencyMicros.count(), errors, reconnects, throughput(),
+                    latencyMicros.valueAtQuantile(0.5) / 1000.0, latencyMicros.valueAtQuantile(0.99) / 1000.0,
+                    latencyMicros.valueAtQuantile(0.999) / 1000.0, latencyMicros.valueAtQuantile(1) / 1000.0,
+                    latencyMicros.count() == 0 ? 0 : latencyMicros.sum() / 1000.0 / latencyMicros.count());
+        }
+    }
+
+    /**
+     * 单个连接, 所有字段只在该连接的 event loop 上读写, 结束后由主线程汇总
+     */
+    private final class Connection extends SimpleChannelInboundHandler<FullHttpResponse> {
+        private final Bootstrap bootstrap;
+        private final long intervalNanos;
+
+        private final LogHistogram latencyMicros = new LogHistogram();
+        private long errors;
+        private long reconnects;
+
+        private volatile Channel channel;
+        private long intendedNanos;
+
+        Connection(Bootstrap bootstrap, long intervalNanos) {
+            Connection handler = this;
+            this.bootstrap = bootstrap.clone().handler(new ChannelInitializer<SocketChannel>() {
+                @Override
+                protected void initChannel(SocketChannel ch) {
+                    ch.pipeline().addLast(new HttpClientCodec());
+                    ch.pipeline().addLast(new HttpObjectAggregator(16 * 1024 * 1024));
+                    ch.pipeline().addLast(handler);
+                }
+            });
+            this.intervalNanos = intervalNanos;
+        }
+
+        ChannelFuture connect() {
+            return bootstrap.connect(host, port);
+        }
+
+        @Override
+        public boolean isSharable() {
+            // 重连时复用同一个 handler 保留统计数据
+            return true;
+        }
+
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) {
+            channel = ctx.channel();
+            send(ctx, System.nanoTime());
+        }
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, FullHttpResponse response) {
+            long now = System.nanoTime();
+            if (recording) {
+                latencyMicros.record(TimeUnit.NANOSECONDS.toMicros(now - intendedNanos));
+                if (!HttpResponseStatus.OK.equals(response.status())) {
+                    errors++;
+                }
+            }
+            if (!running || !HttpUtil.isKeepAlive(response)) {
+                return;
+            }
+            if (intervalNanos == 0) {
+                send(ctx, now);
+                return;
+            }
+            long next = intendedNanos + intervalNanos;
+            long delay = next - now;
+            if (delay <= 0) {
+                send(ctx, next);
+            } else {
+                ctx.executor().schedule(() -> send(ctx, next), delay, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) {
+            // 网关主动关闭连接(例如 Connection: close)时重连
+            if (running) {
+                reconnects++;
+                // 在同一个 event loop 上重连, 统计数据始终由同一线程写入
+                bootstrap.clone(ctx.channel().eventLoop()).connect(host, port);
+            }
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            if (recording) {
+                errors++;
+            }
+            ctx.close();
+        }
+
+        private void send(ChannelHandlerContext ctx, long intended) {
+            if (!running) {
+                return;
+            }
+            intendedNanos = intended;
+            ctx.writeAndFlush(template.retainedDuplicate());
+        }
+    }
+
+    /**
+     * 构造 form 表单 POST 请求
+     */
+    public static FullHttpRequest formPost(String host, String uri, String body) {
+        ByteBuf content = Unpooled.copiedBuffer(body, io.netty.util.CharsetUtil.UTF_8);
+        FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, uri, content);
+        request.headers().set(HttpHeaderNames.HOST, host);
+        request.headers().set(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.APPLICATION_X_WWW_FORM_URLENCODED);
+        request.headers().setInt(HttpHeaderNames.CONTENT_LENGTH, content.readableBytes());
+        request.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
+        return request;
+    }
+}
@@ -0,0 +1,353 @@
+package loadtest;
+
+import com.github.dapeng.core.BeanSerializer;
+import com.github.dapeng.core.SoaHeader;
+import com.github.dapeng.core.metadata.Service;
+import com.github.dapeng.gateway.auth.WhiteListHandler;
+import com.github.dapeng.json.OptimizedMetadata;
+import com.github.dapeng.openapi.cache.ServiceCache;
+import com.github.dapeng.org.apache.thrift.TException;
+import com.github.dapeng.org.apache.thrift.protocol.*;
+import com.github.dapeng.util.SoaMessageBuilder;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.*;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import javax.xml.bind.JAXB;
+import java.io.StringReader;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 本地桩 dapeng 服务.
+ * <p>
+ * 把桩服务 {@link #SERVICE} 的元数据注册到 {@link ServiceCache}, 并在本机端口上按 dapeng 协议应答;
+ * 网关走与线上相同的 ServiceCache 查找、JsonPost 编解码及 dapeng 客户端连接, 请求通过 calleeIp/calleePort 直连本服务,
+ * 服务本身不需要注册到 zookeeper.
+ * <p>
+ * 延迟与返回报文大小均服从对数正态分布, 由中位数和 p99 (报文为最大值) 确定; 响应在独立线程池上写回.
+ * 请求体不解码, 只读取帧头中的 seqid.
+ *
+ * @author agent 2026.10.19
+ */
+public class StubBackend {
+    public static final String SERVICE = "com.today.api.order.service.OrderService2";
+    public static final String VERSION = "1.0.0";
+    public static final String METHOD = "createOrder";
+
+    /**
+     * 与 {@link #SERVICE} 一致的元数据, 格式同服务端 getServiceMetadata 返回的 xml
+     */
+    private static final String METADATA = "<service namespace=\"com.today.api.order.service\" name=\"OrderService2\">"
+            + "<meta><version>" + VERSION + "</version><timeout>30000</timeout></meta>"
+            + "<methods><method name=\"" + METHOD + "\">"
+            + "<request namespace=\"com.today.api.order.service\" name=\"createOrder_args\"><fields>"
+            + field(1, "request", struct("com.today.api.order.request.CreateOrderRequest"))
+            + "</fields></request>"
+            + "<response namespace=\"com.today.api.order.service\" name=\"createOrder_result\"><fields>"
+            + field(0, "success", struct("com.today.api.order.response.CreateOrderResponse"))
+            + "</fields></response>"
+            + "</method></methods>"
+            + "<structs>"
+            + "<struct namespace=\"com.today.api.order.request\" name=\"CreateOrderRequest\"><fields>"
+            + field(1, "storeId", kind("LONG")) + optionalField(2, "posId", kind("INTEGER"))
+            + optionalField(3, "items", list(struct("com.today.api.order.request.OrderItem")))
+            + "</fields></struct>"
+            + "<struct namespace=\"com.today.api.order.request\" name=\"OrderItem\"><fields>"
+            + field(1, "skuNo", kind("STRING")) + field(2, "num", kind("INTEGER")) + field(3, "price", kind("DOUBLE"))
+            + "</fields></struct>"
+            + "<struct namespace=\"com.today.api.order.response\" name=\"CreateOrderResponse\"><fields>"
+            + field(1, "orderNo", kind("STRING")) + field(2, "storeId", kind("LONG"))
+            + field(3, "items", list(struct("com.today.api.order.response.OrderItemResult")))
+            + "</fields></struct>"
+            + "<struct namespace=\"com.today.api.order.response\" name=\"OrderItemResult\"><fields>"
+            + field(1, "skuNo", kind("STRING")) + field(2, "num", kind("INTEGER"))
+            + "</fields></struct>"
+            + "</structs></service>";
+
+    /**
+     * 标准正态分布的 99 分位
+     */
+    private static final double Z_99 = 2.3263;
+    private static final int MIN_PAYLOAD = 32;
+    /**
+     * 返回报文中 "items" 之外的部分及每个 item 的 json 字节数(约)
+     */
+    private static final int PAYLOAD_OVERHEAD = 64;
+    private static final int ITEM_BYTES = 35;
+    /**
+     * 帧: length(4) STX(1) version(1) protocol(1) seqid(4) header body ETX(1)
+     */
+    private static final int SEQID_OFFSET = 7;
+    private static final int MAX_FRAME = 16 * 1024 * 1024;
+
+    private static final BeanSerializer<Integer> RESPONSE_SERIALIZER = new ResponseSerializer();
+
+    private final EventLoopGroup group;
+    private final ScheduledExecutorService scheduler;
+    private final LongAdder calls = new LongAdder();
+
+    private final double latencyMedianMicros;
+    private final double latencySigma;
+    private final double payloadMedian;
+    private final double payloadSigma;
+    private final int payloadMax;
+
+    /**
+     * 按 2 的幂预先算好的 item 数, 避免桩服务自身的开销影响网关测量
+     */
+    private final int[] payloadItems;
+
+    private Channel serverChannel;
+
+    public StubBackend(int threads, long latencyMedianMicros, long latencyP99Micros, int payloadMedian, int payloadMax) {
+        this.group = new NioEventLoopGroup(1, new DefaultThreadFactory("stub-dapeng-io", true));
+        this.scheduler = Executors.newScheduledThreadPool(threads, new DefaultThreadFactory("stub-dapeng-backend", true));
+        this.latencyMedianMicros = latencyMedianMicros;
+        this.latencySigma = sigma(latencyMedianMicros, latencyP99Micros);
+        this.payloadMedian = Math.max(payloadMedian, MIN_PAYLOAD);
+        this.payloadMax = Math.max(payloadMax, (int) this.payloadMedian);
+        this.payloadSigma = sigma(this.payloadMedian, this.payloadMax);
+
+        int classes = 32 - Integer.numberOfLeadingZeros(this.payloadMax);
+        this.payloadItems = new int[classes + 1];
+        for (int i = 0; i < payloadItems.length; i++) {
+            payloadItems[i] = Math.max(0, (Math.min(1 << i, this.payloadMax) - PAYLOAD_OVERHEAD) / ITEM_BYTES);
+        }
+    }
+
+    /**
+     * 注册元数据并开始监听
+     *
+     * @return 监听端口, 请求参数 calleePort 使用该端口
+     */
+    public int start() throws InterruptedException {
+        register();
+        serverChannel = new ServerBootstrap()
+                .group(group)
+                .channel(NioServerSocketChannel.class)
+                .childOption(ChannelOption.TCP_NODELAY, Boolean.TRUE)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        ch.pipeline().addLast(new FrameDecoder());
+                        ch.pipeline().addLast(new RequestHandler());
+                    }
+                })
+                .bind("127.0.0.1", 0).sync().channel();
+        return ((InetSocketAddress) serverChannel.localAddress()).getPort();
+    }
+
+    /**
+     * @return 收到的请求数, 不含心跳
+     */
+    public long calls() {
+        return calls.sum();
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+        if (serverChannel != null) {
+            serverChannel.close();
+        }
+        group.shutdownGracefully(0, 1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * ServiceCache 只在从注册中心拉取元数据时写入, 这里直接放入其缓存的 map;
+     * 按全名查找使用的 map 没有公开, 通过反射补充. 同时把桩服务加入网关白名单
+     */
+    @SuppressWarnings("unchecked")
+    private static void register() {
+        WhiteListHandler.publishWhiteList(Collections.singleton(SERVICE));
+        Service service = JAXB.unmarshal(new StringReader(METADATA), Service.class);
+        OptimizedMetadata.OptimizedService optimized = new OptimizedMetadata.OptimizedService(service);
+        String shortName = SERVICE.substring(SERVICE.lastIndexOf('.') + 1);
+        ServiceCache.getServices().put(shortName + ":" + VERSION, optimized);
+        if (ServiceCache.getService(SERVICE, VERSION) != null) {
+            return;
+        }
+        try {
+            for (Field field : ServiceCache.class.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) && Map.class.isAssignableFrom(field.getType())) {
+                    field.setAccessible(true);
+                    Map<String, Object> services = (Map<String, Object>) field.get(null);
+                    if (services != ServiceCache.getServices() && services.values().stream().allMatch(v -> v instanceof OptimizedMetadata.OptimizedService)) {
+                        services.put(SERVICE + ":" + VERSION, optimized);
+                    }
+                }
+            }
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("register stub service failed: " + e.getMessage(), e);
+        }
+        if (ServiceCache.getService(SERVICE, VERSION) == null) {
+            throw new IllegalStateException("stub service " + SERVICE + ":" + VERSION + " not found in ServiceCache after registering");
+        }
+    }
+
+    private int sizeClass(double size) {
+        int bytes = (int) Math.max(MIN_PAYLOAD, Math.min(size, payloadMax));
+        return 32 - Integer.numberOfLeadingZeros(bytes - 1);
+    }
+
+    private static double sigma(double median, double p99) {
+        return p99 > median && median > 0 ? Math.log(p99 / median) / Z_99 : 0;
+    }
+
+    private static double sample(double median, double sigma) {
+        if (sigma == 0) {
+            return median;
+        }
+        return median * Math.exp(sigma * ThreadLocalRandom.current().nextGaussian());
+    }
+
+    private static String field(int tag, String name, String dataType) {
+        return field(tag, name, false, dataType);
+    }
+
+    private static String optionalField(int tag, String name, String dataType) {
+        return field(tag, name, true, dataType);
+    }
+
+    private static String field(int tag, String name, boolean optional, String dataType) {
+        return "<field tag=\"" + tag + "\" name=\"" + name + "\" optional=\"" + optional + "\" privacy=\"false\">" + dataType + "</field>";
+    }
+
+    private static String kind(String kind) {
+        return "<dataType><kind>" + kind + "</kind></dataType>";
+    }
+
+    private static String struct(String qualifiedName) {
+        return "<dataType><kind>STRUCT</kind><qualifiedName>" + qualifiedName + "</qualifiedName></dataType>";
+    }
+
+    private static String list(String valueType) {
+        return "<dataType><kind>LIST</kind>" + valueType.replace("<dataType>", "<valueType>").replace("</dataType>", "</valueType>") + "</dataType>";
+    }
+
+    /**
+     * 按长度字段切帧, 保留长度字段; 长度为 0 的是心跳, 原样返回
+     */
+    private static final class FrameDecoder extends ByteToMessageDecoder {
+        @Override
+        protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
+            while (in.readableBytes() >= Integer.BYTES) {
+                int length = in.getInt(in.readerIndex());
+                if (length == 0) {
+                    in.skipBytes(Integer.BYTES);
+                    ctx.writeAndFlush(ctx.alloc().buffer(Integer.BYTES).writeInt(0));
+                    continue;
+                }
+                if (length < 0 || length > MAX_FRAME) {
+                    throw new IllegalStateException("illegal dapeng frame length: " + length);
+                }
+                if (in.readableBytes() < Integer.BYTES + length) {
+                    return;
+                }
+                out.add(in.readRetainedSlice(Integer.BYTES + length));
+            }
+        }
+    }
+
+    private final class RequestHandler extends SimpleChannelInboundHandler<ByteBuf> {
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, ByteBuf frame) {
+            calls.increment();
+            int seqid = frame.getInt(frame.readerIndex() + SEQID_OFFSET);
+            int items = payloadItems[sizeClass(sample(payloadMedian, payloadSigma))];
+            long delay = (long) sample(latencyMedianMicros, latencySigma);
+            Runnable reply = () -> ctx.writeAndFlush(response(ctx, seqid, items));
+            if (delay <= 0) {
+                scheduler.execute(reply);
+            } else {
+                scheduler.schedule(reply, delay, TimeUnit.MICROSECONDS);
+            }
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            ctx.close();
+        }
+    }
+
+    private static ByteBuf response(ChannelHandlerContext ctx, int seqid, int items) {
+        SoaHeader header = new SoaHeader();
+        header.setServiceName(SERVICE);
+        header.setVersionName(VERSION);
+        header.setMethodName(METHOD);
+        header.setRespCode("0000");
+        header.setRespMessage("ok");
+        ByteBuf buffer = ctx.alloc().buffer(PAYLOAD_OVERHEAD + items * ITEM_BYTES);
+        try {
+            return new SoaMessageBuilder<Integer>().buffer(buffer).header(header).body(items, RESPONSE_SERIALIZER).seqid(seqid).build();
+        } catch (TException e) {
+            buffer.release();
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 写出 createOrder_result, items 个商品; 只用于写响应
+     */
+    private static final class ResponseSerializer implements BeanSerializer<Integer> {
+        @Override
+        public Integer read(TProtocol iprot) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void write(Integer items, TProtocol oprot) throws TException {
+            oprot.writeStructBegin(new TStruct("createOrder_result"));
+            oprot.writeFieldBegin(new TField("success", TType.STRUCT, (short) 0));
+
+            oprot.writeStructBegin(new TStruct("CreateOrderResponse"));
+            oprot.writeFieldBegin(new TField("orderNo", TType.STRING, (short) 1));
+            oprot.writeString("2026101900001234");
+            oprot.writeFieldEnd();
+            oprot.writeFieldBegin(new TField("storeId", TType.I64, (short) 2));
+            oprot.writeI64(1234);
+            oprot.writeFieldEnd();
+            oprot.writeFieldBegin(new TField("items", TType.LIST, (short) 3));
+            oprot.writeListBegin(new TList(TType.STRUCT, items));
+            for (int i = 0; i < items; i++) {
+                oprot.writeStructBegin(new TStruct("OrderItemResult"));
+                oprot.writeFieldBegin(new TField("skuNo", TType.STRING, (short) 1));
+                oprot.writeString("69012345" + (10000 + i % 90000));
+                oprot.writeFieldEnd();
+                oprot.writeFieldBegin(new TField("num", TType.I32, (short) 2));
+                oprot.writeI32(i % 9 + 1);
+                oprot.writeFieldEnd();
+                oprot.writeFieldStop();
+                oprot.writeStructEnd();
+            }
+            oprot.writeListEnd();
+            oprot.writeFieldEnd();
+            oprot.writeFieldStop();
+            oprot.writeStructEnd();
+
+            oprot.writeFieldEnd();
+            oprot.writeFieldStop();
+            oprot.writeStructEnd();
+        }
+
+        @Override
+        public void validate(Integer items) {
+        }
+
+        @Override
+        public String toString(Integer items) {
+            return "createOrder_result(items:" + items + ")";
+        }
+    }
+}